@@ -0,0 +1,190 @@
+package snapdemos.jewels;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for Jewels match detection: the bitboard Board matcher against the original PlayView per-cell scan
+ * (getMatchForGemAtGridXY, which walked left/right/up/down from every cell), on the same seeded random boards.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchDetectorBench {
+
+    // The board size
+    @Param({ "8", "64" })
+    public int size;
+
+    // The boards and the same gem ids as grids (by x/y) for the per-cell scan
+    private Board[] _boards;
+    private int[][][] _grids;
+    private int _boardIndex;
+
+    // The bitboard and flags for matched cells
+    private long[] _matchBits;
+    private boolean[][] _matched;
+
+    // The swaps (x, y and whether horizontal) to check
+    private int[] _swapXs, _swapYs;
+    private boolean[] _swapHorizontals;
+    private int _swapIndex;
+
+    // Constants
+    private static final int BOARD_COUNT = 64;
+    private static final int SWAP_COUNT = 1024;
+    private static final int COLOR_COUNT = 7;
+    private static final long SEED = 1234;
+
+    /**
+     * Sets up boards and swaps and checks that both matchers agree.
+     */
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        // Create random boards (with matches) and grids
+        _boards = new Board[BOARD_COUNT];
+        _grids = new int[BOARD_COUNT][][];
+        for (int i = 0; i < BOARD_COUNT; i++) {
+            Board board = _boards[i] = new Board(size, size, COLOR_COUNT);
+            board.setSeed(SEED + i);
+            board.fillRandom();
+            int[][] grid = _grids[i] = new int[size][size];
+            for (int x = 0; x < size; x++)
+                for (int y = 0; y < size; y++)
+                    grid[x][y] = board.getGemId(x, y);
+        }
+        _matchBits = _boards[0].newBits();
+        _matched = new boolean[size][size];
+
+        // Create random swaps
+        Random random = new Random(SEED);
+        _swapXs = new int[SWAP_COUNT];
+        _swapYs = new int[SWAP_COUNT];
+        _swapHorizontals = new boolean[SWAP_COUNT];
+        for (int i = 0; i < SWAP_COUNT; i++) {
+            boolean horizontal = _swapHorizontals[i] = random.nextBoolean();
+            _swapXs[i] = random.nextInt(horizontal ? size - 1 : size);
+            _swapYs[i] = random.nextInt(horizontal ? size : size - 1);
+        }
+
+        // Check that matchers agree (benchmarks advance to next board before matching)
+        for (int i = 0; i < BOARD_COUNT; i++) {
+            _boardIndex = (i + BOARD_COUNT - 1) % BOARD_COUNT;
+            int matchCount = findMatches();
+            _boardIndex = (i + BOARD_COUNT - 1) % BOARD_COUNT;
+            if (matchCount != legacyFindMatches())
+                throw new IllegalStateException("MatchDetectorBench: Match counts differ for board " + i);
+        }
+    }
+
+    /**
+     * Benchmarks finding all matched cells of a board with bitboards.
+     */
+    @Benchmark
+    public int findMatches()
+    {
+        Board board = _boards[_boardIndex = (_boardIndex + 1) % BOARD_COUNT];
+        return board.findMatches(_matchBits);
+    }
+
+    /**
+     * Benchmarks finding all matched cells of a board with the original per-cell scan.
+     */
+    @Benchmark
+    public int legacyFindMatches()
+    {
+        // Get grid and clear matched flags
+        int[][] grid = _grids[_boardIndex = (_boardIndex + 1) % BOARD_COUNT];
+        for (boolean[] column : _matched)
+            Arrays.fill(column, false);
+
+        // Get match for every cell and flag match cells
+        int matchCount = 0;
+        for (int x = 0; x < size; x++) {
+            for (int y = 0; y < size; y++) {
+                int[] match = getLegacyMatch(grid, x, y);
+                if (match == null)
+                    continue;
+                for (int i = match[0]; i <= match[2]; i++)
+                    for (int j = match[1]; j <= match[3]; j++)
+                        if ((i == x || j == y) && !_matched[i][j]) {
+                            _matched[i][j] = true;
+                            matchCount++;
+                        }
+            }
+        }
+
+        // Return
+        return matchCount;
+    }
+
+    /**
+     * Benchmarks checking whether a swap makes a match with bitboards.
+     */
+    @Benchmark
+    public int getSwapMatchCount()
+    {
+        int index = _swapIndex = (_swapIndex + 1) % SWAP_COUNT;
+        int x = _swapXs[index], y = _swapYs[index];
+        boolean horizontal = _swapHorizontals[index];
+        return _boards[index % BOARD_COUNT].getSwapMatchCount(x, y, horizontal ? x + 1 : x, horizontal ? y : y + 1);
+    }
+
+    /**
+     * Benchmarks checking whether a swap makes a match with the original per-cell scan (swap, get match for both
+     * cells, swap back).
+     */
+    @Benchmark
+    public boolean legacySwapMatch()
+    {
+        // Get swap
+        int index = _swapIndex = (_swapIndex + 1) % SWAP_COUNT;
+        int[][] grid = _grids[index % BOARD_COUNT];
+        int x1 = _swapXs[index], y1 = _swapYs[index];
+        int x2 = _swapHorizontals[index] ? x1 + 1 : x1;
+        int y2 = _swapHorizontals[index] ? y1 : y1 + 1;
+
+        // Swap, get matches and swap back
+        int gemId = grid[x1][y1]; grid[x1][y1] = grid[x2][y2]; grid[x2][y2] = gemId;
+        boolean match = getLegacyMatch(grid, x1, y1) != null || getLegacyMatch(grid, x2, y2) != null;
+        grid[x2][y2] = grid[x1][y1]; grid[x1][y1] = gemId;
+        return match;
+    }
+
+    /**
+     * Returns the match extents (col0, row0, col1, row1) for gem at given cell, or null if no match, the same way as
+     * the original PlayView.getMatchForGemAtGridXY (which allocated a Match for each).
+     */
+    private int[] getLegacyMatch(int[][] aGrid, int aCol, int aRow)
+    {
+        // Get gem id and extents
+        int gemId = aGrid[aCol][aRow];
+        int col0 = aCol, row0 = aRow, col1 = aCol, row1 = aRow;
+
+        // Iterate left/right and up/down to find matching gem extents
+        for (int i = aCol - 1; i >= 0 && aGrid[i][aRow] == gemId; i--)
+            col0--;
+        for (int i = aCol + 1; i < size && aGrid[i][aRow] == gemId; i++)
+            col1++;
+        for (int i = aRow - 1; i >= 0 && aGrid[aCol][i] == gemId; i--)
+            row0--;
+        for (int i = aRow + 1; i < size && aGrid[aCol][i] == gemId; i++)
+            row1++;
+
+        // If extents exceed 2 in either direction, return match
+        int dx = col1 - col0;
+        if (dx < 2)
+            col0 = col1 = aCol;
+        int dy = row1 - row0;
+        if (dy < 2)
+            row0 = row1 = aRow;
+        if (dx < 2 && dy < 2)
+            return null;
+        return new int[] { col0, row0, col1, row1 };
+    }
+}
@@ -0,0 +1,213 @@
+package snapdemos.tetris;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * JMH benchmarks for the Tetris game loop (PlayModel and Board), run headless on a seeded piece sequence.
+ * Ticks/sec and pieces/sec are reported as throughput, allocation bytes per tick by the GC profiler (-prof gc).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PlayModelBench {
+
+    // The model
+    private PlayModel _model;
+
+    // The random used to pick input
+    private Random _inputRandom;
+
+    // A board with a partial stack and the placements (pattern, col, row) to check against it
+    private Board _stackBoard;
+    private Pattern[] _placePatterns;
+    private int[] _placeCols, _placeRows;
+    private int _placeCount, _placeIndex;
+
+    // A board with four rows full except first column and a board to settle pieces into
+    private Board _clearBoard, _settleBoard;
+
+    // The array to hold removed rows
+    private int[] _removedRows;
+
+    // Constants
+    private static final int COL_COUNT = 10;
+    private static final int ROW_COUNT = 20;
+    private static final long SEED = 1234;
+
+    /**
+     * Sets up the model and boards.
+     */
+    @Setup(Level.Trial)
+    public void setup()
+    {
+        // Create model (not recording) and input random from seed
+        _model = new PlayModel(COL_COUNT, ROW_COUNT, SEED);
+        _model.setRecording(false);
+        _model.startGame();
+        _inputRandom = new Random(SEED);
+
+        // Create stack board by playing seeded game until stack is about half height
+        PlayModel stackModel = new PlayModel(COL_COUNT, ROW_COUNT, SEED);
+        Random stackRandom = new Random(SEED);
+        stackModel.startGame();
+        while (getStackHeight(stackModel.getBoard()) < ROW_COUNT / 2) {
+            int moveCount = stackRandom.nextInt(COL_COUNT) - COL_COUNT / 2;
+            for (int i = 0; i < Math.abs(moveCount); i++) {
+                if (moveCount < 0) stackModel.moveLeft();
+                else stackModel.moveRight();
+            }
+            stackModel.dropBlock();
+        }
+        _stackBoard = stackModel.getBoard().getCopy();
+
+        // Create placements for every pattern rotation, column and row
+        int maxCount = Pattern.ALL_PATTERNS.length * 4 * COL_COUNT * ROW_COUNT;
+        _placePatterns = new Pattern[maxCount];
+        _placeCols = new int[maxCount];
+        _placeRows = new int[maxCount];
+        for (Pattern basePattern : Pattern.ALL_PATTERNS) {
+            Pattern pattern = basePattern;
+            for (int rot = 0; rot < 4; rot++, pattern = pattern.getRotateRight()) {
+                for (int col = 0; col + pattern.colCount <= COL_COUNT; col++) {
+                    for (int row = 0; row + pattern.rowCount <= ROW_COUNT; row++) {
+                        _placePatterns[_placeCount] = pattern;
+                        _placeCols[_placeCount] = col;
+                        _placeRows[_placeCount++] = row;
+                    }
+                }
+            }
+        }
+
+        // Create clear board: Bottom four rows full except first column (so vertical stick clears four rows)
+        _clearBoard = new Board(COL_COUNT, ROW_COUNT);
+        Pattern stick = Pattern.STICK.getRotateRight();
+        for (int row = ROW_COUNT - 4; row < ROW_COUNT; row++) {
+            _clearBoard.addPattern(stick, 1, row);
+            _clearBoard.addPattern(stick, 5, row);
+        }
+        _clearBoard.addPattern(Pattern.STICK, 9, ROW_COUNT - 4);
+        _clearBoard.addPattern(Pattern.SQUARE, 4, ROW_COUNT - 6);
+        _settleBoard = new Board(COL_COUNT, ROW_COUNT);
+        _removedRows = new int[ROW_COUNT];
+    }
+
+    /**
+     * Benchmarks a game tick at normal speed (with random input every few ticks).
+     */
+    @Benchmark
+    public boolean tick(PieceCounters theCounters)
+    {
+        applyRandomInput();
+        boolean settled = _model.tick();
+        updateCounters(theCounters, settled);
+        return settled;
+    }
+
+    /**
+     * Benchmarks a hard drop of every piece (with random input before each drop).
+     */
+    @Benchmark
+    public int hardDrop(PieceCounters theCounters)
+    {
+        applyRandomInput();
+        _model.dropBlock();
+        updateCounters(theCounters, true);
+        return _model.getScore();
+    }
+
+    /**
+     * Benchmarks checking whether a piece is obstructed on a half full board.
+     */
+    @Benchmark
+    public boolean isBlockObstructed()
+    {
+        int index = _placeIndex = (_placeIndex + 1) % _placeCount;
+        return _stackBoard.isObstructed(_placePatterns[index], _placeCols[index], _placeRows[index]);
+    }
+
+    /**
+     * Benchmarks getting the drop row for a piece from top of a half full board (from column heights).
+     */
+    @Benchmark
+    public int getDropRow()
+    {
+        int index = _placeIndex = (_placeIndex + 1) % _placeCount;
+        return _stackBoard.getDropRow(_placePatterns[index], _placeCols[index], 0);
+    }
+
+    /**
+     * Benchmarks adding a piece to board rows that doesn't complete a row.
+     */
+    @Benchmark
+    public int addBlockToRows()
+    {
+        _settleBoard.copyFrom(_stackBoard);
+        _settleBoard.addPattern(Pattern.SQUARE, 0, 0);
+        return _settleBoard.removeFullRows(_removedRows);
+    }
+
+    /**
+     * Benchmarks adding a piece to board rows that completes and removes four rows.
+     */
+    @Benchmark
+    public int removeStackRows()
+    {
+        _settleBoard.copyFrom(_clearBoard);
+        _settleBoard.addPattern(Pattern.STICK, 0, ROW_COUNT - 4);
+        return _settleBoard.removeFullRows(_removedRows);
+    }
+
+    /**
+     * Applies a random move, rotate or nothing to model.
+     */
+    private void applyRandomInput()
+    {
+        switch (_inputRandom.nextInt(16)) {
+            case 0 -> _model.moveLeft();
+            case 1 -> _model.moveRight();
+            case 2 -> _model.rotateBlock();
+        }
+    }
+
+    /**
+     * Updates counters for settled piece and restarts game if over.
+     */
+    private void updateCounters(PieceCounters theCounters, boolean isSettled)
+    {
+        if (isSettled) {
+            theCounters.pieces++;
+            theCounters.lines += _model.getRemovedRowCount();
+        }
+        if (_model.isGameOver())
+            _model.startGame();
+    }
+
+    /**
+     * Returns the number of rows from the bottom to the top filled row.
+     */
+    private static int getStackHeight(Board aBoard)
+    {
+        for (int row = 0; row < aBoard.getRowCount(); row++)
+            if (aBoard.getRowBits(row) != 0)
+                return aBoard.getRowCount() - row;
+        return 0;
+    }
+
+    /**
+     * Counters reported by JMH as settled pieces and removed lines per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PieceCounters {
+
+        // The number of settled pieces and removed lines
+        public long pieces, lines;
+
+        @Setup(Level.Iteration)
+        public void reset()  { pieces = lines = 0; }
+    }
+}
@@ -233,7 +233,7 @@ public class FacetrisView extends WorldView {
         getController().resetLater();
 
         Body body = (Body) aFace.getView().getPhysics().getNative();
-        body.setGravityScale(2.5f);
+        getJBoxWorld().runInWorld(() -> body.setGravityScale(2.5f));
 
         if (getLostFaces().size() >= 3)
             stopNewFaces();
@@ -1,5 +1,8 @@
 package snapdemos.jbox2d;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
 import org.jbox2d.callbacks.ContactListener;
 import org.jbox2d.collision.shapes.CircleShape;
 import org.jbox2d.collision.shapes.PolygonShape;
@@ -7,6 +10,7 @@ import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.*;
 import org.jbox2d.dynamics.joints.*;
 import snap.geom.*;
+import snap.props.PropChangeListener;
 import snap.util.ListUtils;
 import snap.util.MathUtils;
 import snap.view.*;
@@ -28,9 +32,64 @@ public class JBoxWorld {
     // The ratio of screen points to Box2D world meters.
     private double _pixelsToMeters = 720 / 10d;
     
+    // The views and bodies of dynamic bodies (maintained as views are added and removed)
+    private List<View> _dynamicViews = new ArrayList<>();
+    private List<Body> _dynamicBodies = new ArrayList<>();
+
+    // The kinematic bodies (with views and targets)
+    private List<KinematicBody> _kinematicBodies = new ArrayList<>();
+
+    // The views and joints of joints
+    private List<View> _jointViews = new ArrayList<>();
+    private List<Joint> _joints = new ArrayList<>();
+
+    // Scratch points for conversions on UI thread
+    private Vec2 _viewToJboxPoint = new Vec2();
+    private Point _jboxToViewPoint = new Point();
+    private Vec2 _jointAnchor = new Vec2();
+
+    // Scratch velocity for kinematic bodies on world thread
+    private Vec2 _velocity = new Vec2();
+
+    // The physics thread (if world steps on its own thread)
+    private Thread _physicsThread;
+
+    // Whether physics thread should keep stepping
+    private volatile boolean _physicsThreadRunning;
+
+    // The commands to run on the world thread before the next step (view driven kinematic updates, mouse joints)
+    private Queue<Runnable> _commands = new ConcurrentLinkedQueue<>();
+
+    // The body transform snapshots: the one written by world thread, the latest published and the one UI reads
+    private BodySnapshot _writeSnapshot = new BodySnapshot(), _readSnapshot = new BodySnapshot();
+    private AtomicReference<BodySnapshot> _latestSnapshot = new AtomicReference<>(new BodySnapshot());
+
+    // The wall clock time of last frame and the accumulated time not yet stepped (in nanos)
+    private long _clockTime, _accumulatedTime;
+
+    // The max number of fixed steps per frame to catch up with wall clock (beyond that, time is dropped)
+    private int _maxStepsPerFrame = DEFAULT_MAX_STEPS_PER_FRAME;
+
+    // The number of fixed steps in current frame
+    private int _frameStepCount = 1;
+
+    // The number of steps run, steps dropped and frames clamped to max steps per frame
+    private volatile long _stepCount, _droppedStepCount, _clampedFrameCount;
+
+    // The Box2D shapes for centered polygons and other non-trivial shapes (by geometry and pixels to meters)
+    private static Map<ShapeKey, List<org.jbox2d.collision.shapes.Shape>> _jboxShapesCache = new ConcurrentHashMap<>();
+
+    // The max number of shapes in Box2D shapes cache (cache is cleared when reached)
+    private static final int MAX_CACHED_SHAPES = 512;
+
+    // The smallest view position (in points) and rotation (in degrees) change pushed to views
+    private static final double VIEW_XY_EPSILON = .05, VIEW_ROTATE_EPSILON = .05;
+
     // The speed
     public static final int INTERVAL_MILLIS = 25;
     public static final float INTERVAL_SECS = INTERVAL_MILLIS / 1000f;
+    private static final long INTERVAL_NANOS = INTERVAL_MILLIS * 1000000L;
+    public static final int DEFAULT_MAX_STEPS_PER_FRAME = 4;
 
     /**
      * Constructor for given world view.
@@ -61,7 +120,8 @@ public class JBoxWorld {
     {
         if (aValue == getGravity()) return;
         _gravity = aValue;
-        _world.setGravity(getVec2(0, aValue));
+        Vec2 gravity = getVec2(0, aValue);
+        runInWorld(() -> _world.setGravity(gravity));
     }
 
     /**
@@ -85,91 +145,366 @@ public class JBoxWorld {
     public ContactListener getContactListener()  { return _world.getContactManager().m_contactListener; }
 
     /**
-     * Sets a contact listener.
+     * Sets a contact listener. If world is threaded, listener is called on the physics thread.
      */
     public void setContactListener(ContactListener contactLsnr)
     {
-        _world.setContactListener(contactLsnr);
+        synchronized (_world) {
+            _world.setContactListener(contactLsnr);
+        }
+    }
+
+    /**
+     * Returns the max number of fixed steps per frame to catch up with wall clock.
+     */
+    public int getMaxStepsPerFrame()  { return _maxStepsPerFrame; }
+
+    /**
+     * Sets the max number of fixed steps per frame to catch up with wall clock (beyond that, time is dropped).
+     */
+    public void setMaxStepsPerFrame(int aValue)
+    {
+        if (aValue < 1)
+            throw new IllegalArgumentException("JBoxWorld.setMaxStepsPerFrame: Invalid value: " + aValue);
+        _maxStepsPerFrame = aValue;
     }
 
     /**
-     * Called to process next world frame (usually by timer).
+     * Returns the number of fixed steps run.
+     */
+    public long getStepCount()  { return _stepCount; }
+
+    /**
+     * Returns the number of fixed steps dropped because a frame needed more than max steps per frame.
+     */
+    public long getDroppedStepCount()  { return _droppedStepCount; }
+
+    /**
+     * Returns the number of frames clamped to max steps per frame.
+     */
+    public long getClampedFrameCount()  { return _clampedFrameCount; }
+
+    /**
+     * Resets the wall clock, so the next frame steps from now (called when world starts running).
+     */
+    public void resetClock()
+    {
+        _clockTime = System.nanoTime();
+        _accumulatedTime = 0;
+    }
+
+    /**
+     * Returns whether world steps on its own physics thread.
+     */
+    public boolean isThreaded()  { return _physicsThread != null; }
+
+    /**
+     * Starts stepping world on its own physics thread at a fixed rate. Views are then updated from the latest
+     * published snapshot by calling syncViewsFromSnapshot() on the UI thread.
+     */
+    public void startThread()
+    {
+        // If already threaded, just return
+        if (_physicsThread != null) return;
+
+        // Create and start physics thread
+        resetClock();
+        _physicsThreadRunning = true;
+        _physicsThread = new Thread(this::runPhysicsThread, "JBoxWorld Physics");
+        _physicsThread.setDaemon(true);
+        _physicsThread.start();
+    }
+
+    /**
+     * Stops the physics thread (and runs any pending commands on this thread).
+     */
+    public void stopThread()
+    {
+        // If not threaded, just return
+        if (_physicsThread == null) return;
+
+        // Stop thread and wait for it to finish
+        _physicsThreadRunning = false;
+        _physicsThread.interrupt();
+        try { _physicsThread.join(); }
+        catch (InterruptedException e) { Thread.currentThread().interrupt(); }
+        _physicsThread = null;
+
+        // Run pending commands
+        runCommands();
+    }
+
+    /**
+     * Runs given command on the thread that steps the world: queued for next step if threaded, otherwise now.
+     */
+    public void runInWorld(Runnable aRun)
+    {
+        if (_physicsThread != null)
+            _commands.add(aRun);
+        else aRun.run();
+    }
+
+    /**
+     * Called to process next world frame (usually by timer): runs as many fixed steps as wall clock time allows
+     * (up to max steps per frame) and updates views interpolated between the previous and current body states.
      */
     public void stepWorld()
     {
-        // Update jbox natives from world view child views (maybe one was dragged or updated externally)
-        _worldView.getChildren().forEach(this::updateJboxBodyFromView);
+        // Get number of fixed steps for elapsed time
+        int stepCount = advanceClock();
+        if (stepCount > 0) {
+
+            // Update kinematic bodies from changed views (maybe one was dragged or updated externally)
+            _frameStepCount = stepCount;
+            for (int i = 0, iMax = _kinematicBodies.size(); i < iMax; i++) {
+                KinematicBody kinematicBody = _kinematicBodies.get(i);
+                if (kinematicBody.isSyncNeeded()) {
+                    kinematicBody.setTargetFromView();
+                    kinematicBody.run();
+                }
+            }
 
-        // Update world
-        _world.step(INTERVAL_SECS, 8, 3);
+            // Update world
+            stepWorld(stepCount, _readSnapshot);
+
+            // Update joint views from joints
+            for (int i = 0, iMax = _joints.size(); i < iMax; i++)
+                updateViewFromJboxJoint(_jointViews.get(i), _joints.get(i));
+        }
 
-        // Update world view children from jbox natives
-        _worldView.getChildren().forEach(this::updateViewFromJboxNative);
+        // Update world view body children from snapshot, interpolated by the time not yet stepped
+        applySnapshot(_readSnapshot, _accumulatedTime / (double) INTERVAL_NANOS);
     }
 
     /**
-     * Updates a view from a body.
+     * Called on UI thread (usually by timer) when threaded to queue kinematic body updates from views and update
+     * dynamic views from the latest body snapshot published by physics thread (interpolated by time since).
      */
-    private void updateViewFromJboxNative(View aView)
+    public void syncViewsFromSnapshot()
     {
-        // Get ViewPhysics and body
-        ViewPhysics viewPhysics = aView.getPhysics(); if (viewPhysics == null) return;
-        Object jboxNative = viewPhysics.getNative();
+        // Queue kinematic body updates from changed views (unless last update is still queued)
+        for (int i = 0, iMax = _kinematicBodies.size(); i < iMax; i++) {
+            KinematicBody kinematicBody = _kinematicBodies.get(i);
+            if (kinematicBody.isSyncNeeded() && !kinematicBody._queued) {
+                kinematicBody.setTargetFromView();
+                kinematicBody._queued = true;
+                _commands.add(kinematicBody);
+            }
+        }
+
+        // If newer snapshot was published, get it (handing back the last one read)
+        if (_latestSnapshot.get()._stepCount > _readSnapshot._stepCount)
+            _readSnapshot = _latestSnapshot.getAndSet(_readSnapshot);
+
+        // Update views from snapshot, interpolated by the time since current state was due
+        BodySnapshot snapshot = _readSnapshot;
+        double ratio = (System.nanoTime() - snapshot._stateTime) / (double) INTERVAL_NANOS;
+        applySnapshot(snapshot, Math.min(ratio, 1));
+    }
+
+    /**
+     * Steps world at fixed rate until physics thread is stopped.
+     */
+    private void runPhysicsThread()
+    {
+        while (_physicsThreadRunning) {
+
+            // Run commands, step world and publish body transforms
+            int stepCount = advanceClock();
+            if (stepCount > 0) {
+                synchronized (_world) {
+                    _frameStepCount = stepCount;
+                    runCommands();
+                    stepWorld(stepCount, _writeSnapshot);
+                }
+                _writeSnapshot = _latestSnapshot.getAndSet(_writeSnapshot);
+            }
+
+            // Sleep until next step is due
+            long sleepTime = INTERVAL_NANOS - _accumulatedTime;
+            try { Thread.sleep(sleepTime / 1000000, (int) (sleepTime % 1000000)); }
+            catch (InterruptedException e) { return; }
+        }
+    }
 
-        // Handle Body
-        if (jboxNative instanceof Body body) {
-            if (!viewPhysics.isDynamic())
-                return;
+    /**
+     * Adds wall clock time since last frame and returns the number of fixed steps to run (dropping any beyond max).
+     */
+    private int advanceClock()
+    {
+        // Add elapsed time
+        long time = System.nanoTime();
+        _accumulatedTime += time - _clockTime;
+        _clockTime = time;
+
+        // Get step count - if more than max, drop the rest
+        long stepCount = _accumulatedTime / INTERVAL_NANOS;
+        if (stepCount > _maxStepsPerFrame) {
+            _droppedStepCount += stepCount - _maxStepsPerFrame;
+            _clampedFrameCount++;
+            stepCount = _maxStepsPerFrame;
+            _accumulatedTime = stepCount * INTERVAL_NANOS + _accumulatedTime % INTERVAL_NANOS;
+        }
 
-            // Get/set position
-            Vec2 pos = body.getPosition();
-            Point posV = convertJboxXYToView(pos.x, pos.y);
-            aView.setXY(posV.x - aView.getWidth() / 2, posV.y - aView.getHeight() / 2);
+        // Remove stepped time and return
+        _accumulatedTime -= stepCount * INTERVAL_NANOS;
+        _stepCount += stepCount;
+        return (int) stepCount;
+    }
 
-            // Get set rotation
-            float angle = body.getAngle();
-            aView.setRotate(-Math.toDegrees(angle));
+    /**
+     * Runs given number of fixed steps and writes previous and current dynamic body transforms to given snapshot.
+     */
+    private void stepWorld(int aStepCount, BodySnapshot aSnapshot)
+    {
+        // Run steps before last
+        for (int i = 1; i < aStepCount; i++)
+            _world.step(INTERVAL_SECS, 8, 3);
+
+        // Write previous transforms of awake dynamic bodies (sleeping bodies don't move, and a body that sleeps
+        // during the last step is still written with its final transform)
+        aSnapshot._count = 0;
+        for (int i = 0, iMax = _dynamicBodies.size(); i < iMax; i++) {
+            Body body = _dynamicBodies.get(i);
+            if (body.isAwake())
+                aSnapshot.add(_dynamicViews.get(i), body);
         }
 
-        // Handle Joint
-        else if (jboxNative instanceof RevoluteJoint joint) {
+        // Run last step and write current transforms
+        _world.step(INTERVAL_SECS, 8, 3);
+        aSnapshot.setCurrentTransforms();
+        aSnapshot._stepCount = _stepCount;
+        aSnapshot._stateTime = _clockTime - _accumulatedTime;
+    }
 
-            // Get/set position
-            Vec2 pos = new Vec2(0,0); joint.getAnchorA(pos);
-            Point posV = convertJboxXYToView(pos.x, pos.y);
-            aView.setXY(posV.x - aView.getWidth() / 2, posV.y - aView.getHeight() / 2);
+    /**
+     * Runs queued commands.
+     */
+    private void runCommands()
+    {
+        for (Runnable command = _commands.poll(); command != null; command = _commands.poll())
+            command.run();
+    }
 
-            // Get set rotation
-            //float angle = joint.getAngle(); aView.setRotate(-Math.toDegrees(angle));
+    /**
+     * Updates views from given snapshot, interpolated between previous and current transforms by given ratio.
+     */
+    private void applySnapshot(BodySnapshot aSnapshot, double aRatio)
+    {
+        float[] transforms = aSnapshot._transforms;
+        for (int i = 0, t = 0; i < aSnapshot._count; i++, t += 6) {
+            float x = (float) (transforms[t] + (transforms[t + 3] - transforms[t]) * aRatio);
+            float y = (float) (transforms[t + 1] + (transforms[t + 4] - transforms[t + 1]) * aRatio);
+            float angle = (float) (transforms[t + 2] + (transforms[t + 5] - transforms[t + 2]) * aRatio);
+            setViewXYAndRotateFromJbox(aSnapshot._views[i], x, y, angle);
         }
     }
 
     /**
-     * Updates a body from a view.
+     * Updates a view from a joint.
+     */
+    private void updateViewFromJboxJoint(View aView, Joint aJoint)
+    {
+        // Get/set position
+        aJoint.getAnchorA(_jointAnchor);
+        Point posV = convertJboxXYToView(_jointAnchor.x, _jointAnchor.y, _jboxToViewPoint);
+        aView.setXY(posV.x - aView.getWidth() / 2, posV.y - aView.getHeight() / 2);
+
+        // Get set rotation
+        //float angle = joint.getAngle(); aView.setRotate(-Math.toDegrees(angle));
+    }
+
+    /**
+     * Sets view position and rotation for given body position and angle (if changed beyond epsilon).
      */
-    private void updateJboxBodyFromView(View aView)
+    private void setViewXYAndRotateFromJbox(View aView, float aX, float aY, float anAngle)
     {
-        // Get ViewPhysics and body
-        ViewPhysics viewPhysics = aView.getPhysics();
-        if (viewPhysics == null || viewPhysics.isDynamic() || viewPhysics.isJoint())
-            return;
-        Body body = (Body) viewPhysics.getNative();
+        // Set position if changed
+        Point posV = convertJboxXYToView(aX, aY, _jboxToViewPoint);
+        double viewX = posV.x - aView.getWidth() / 2;
+        double viewY = posV.y - aView.getHeight() / 2;
+        if (Math.abs(viewX - aView.getX()) > VIEW_XY_EPSILON || Math.abs(viewY - aView.getY()) > VIEW_XY_EPSILON)
+            aView.setXY(viewX, viewY);
+
+        // Set rotation if changed
+        double rotate = -Math.toDegrees(anAngle);
+        if (Math.abs(rotate - aView.getRotate()) > VIEW_ROTATE_EPSILON)
+            aView.setRotate(rotate);
+    }
 
+    /**
+     * Sets body linear and angular velocity to reach given position and angle over the steps of current frame.
+     */
+    private void setJboxBodyVelocityForTarget(Body aBody, float aX, float aY, double anAngle)
+    {
         // Get/set position
-        Vec2 pos0 = body.getPosition();
-        Vec2 pos1 = convertViewXYToJbox(aView.getMidX(), aView.getMidY());
-        double velocityX = (pos1.x - pos0.x) / INTERVAL_SECS;
-        double velocityY = (pos1.y - pos0.y) / INTERVAL_SECS;
-        body.setLinearVelocity(new Vec2((float) velocityX, (float) velocityY));
+        float frameSecs = INTERVAL_SECS * _frameStepCount;
+        Vec2 pos0 = aBody.getPosition();
+        double velocityX = (aX - pos0.x) / frameSecs;
+        double velocityY = (aY - pos0.y) / frameSecs;
+        aBody.setLinearVelocity(_velocity.set((float) velocityX, (float) velocityY));
 
         // Get/set rotation
-        double rot0 = body.getAngle();
-        double rot1 = Math.toRadians(-aView.getRotate());
+        double rot0 = aBody.getAngle();
+        double rot1 = anAngle;
         double angleChange = rot1 - rot0;
         if(angleChange > Math.PI || angleChange < -Math.PI)
             angleChange = MathUtils.mod(angleChange + Math.PI, Math.PI * 2) - Math.PI;
-        double angularVelocity = angleChange / INTERVAL_SECS;
-        body.setAngularVelocity((float) angularVelocity);
+        double angularVelocity = angleChange / frameSecs;
+        aBody.setAngularVelocity((float) angularVelocity);
+    }
+
+    /**
+     * Adds the body or joint of given view (its physics native) to the dynamic, kinematic or joint views synced
+     * each frame.
+     */
+    public void addJboxNativeForView(View aView)
+    {
+        Object jboxNative = aView.getPhysics().getNative();
+        synchronized (_world) {
+            if (jboxNative instanceof Body body && body.getType() == BodyType.DYNAMIC) {
+                _dynamicViews.add(aView);
+                _dynamicBodies.add(body);
+            }
+            else if (jboxNative instanceof Body body)
+                _kinematicBodies.add(new KinematicBody(aView, body));
+            else if (jboxNative instanceof Joint joint) {
+                _jointViews.add(aView);
+                _joints.add(joint);
+            }
+        }
+    }
+
+    /**
+     * Removes the body or joint of given view (its physics native) from the synced views and destroys it in world
+     * (if threaded, after queued commands, which may still reference it).
+     */
+    public void removeJboxNativeForView(View aView)
+    {
+        Object jboxNative = aView.getPhysics().getNative();
+        synchronized (_world) {
+
+            // Remove from dynamic, kinematic or joint views
+            int dynamicIndex = _dynamicViews.indexOf(aView);
+            if (dynamicIndex >= 0) {
+                removeIndexFast(_dynamicViews, dynamicIndex);
+                removeIndexFast(_dynamicBodies, dynamicIndex);
+            }
+            for (int i = _kinematicBodies.size() - 1; i >= 0; i--) {
+                if (_kinematicBodies.get(i)._view == aView) {
+                    _kinematicBodies.get(i).dispose();
+                    removeIndexFast(_kinematicBodies, i);
+                }
+            }
+            int jointIndex = _jointViews.indexOf(aView);
+            if (jointIndex >= 0) {
+                removeIndexFast(_jointViews, jointIndex);
+                removeIndexFast(_joints, jointIndex);
+            }
+        }
+
+        // Destroy native
+        runInWorld(() -> destroyJboxNative(jboxNative));
     }
 
     /**
@@ -186,30 +521,39 @@ public class JBoxWorld {
         //bodyDef.linearDamping = 10;
         //bodyDef.angularDamping = 10;
 
-        // Create Body
-        Body body = _world.createBody(bodyDef);
-
         // Create PolygonShape
         Shape viewShape = aView.getBoundsShape();
         List<org.jbox2d.collision.shapes.Shape> jboxShapes = createJboxShapesForShape(viewShape);
 
-        // Create FixtureDef
-        for (org.jbox2d.collision.shapes.Shape jboxShape : jboxShapes) {
-            FixtureDef fixtureDef = new FixtureDef();
-            fixtureDef.shape = jboxShape;
-            fixtureDef.density = (float) phys.getDensity();
-            fixtureDef.friction = (float) phys.getFriction();
-            fixtureDef.restitution = (float) phys.getRestitution();
-            fixtureDef.filter.groupIndex = phys.getGroupIndex();
-            body.createFixture(fixtureDef);
+        // Create Body and fixtures (locked, in case physics thread is stepping)
+        synchronized (_world) {
+            Body body = _world.createBody(bodyDef);
+            for (org.jbox2d.collision.shapes.Shape jboxShape : jboxShapes) {
+                FixtureDef fixtureDef = new FixtureDef();
+                fixtureDef.shape = jboxShape;
+                fixtureDef.density = (float) phys.getDensity();
+                fixtureDef.friction = (float) phys.getFriction();
+                fixtureDef.restitution = (float) phys.getRestitution();
+                fixtureDef.filter.groupIndex = phys.getGroupIndex();
+                body.createFixture(fixtureDef);
+            }
+            return body;
         }
+    }
 
-        // Return
-        return body;
+    /**
+     * Creates Box2D shapes for bounds shapes of given views (and caches them), so creating bodies for views with
+     * the same shapes later doesn't have to decompose them. Call after pixels to meters is set.
+     */
+    public void precomputeJboxShapesForViews(List<View> theViews)
+    {
+        for (View view : theViews)
+            createJboxShapesForShape(view.getBoundsShape());
     }
 
     /**
-     * Creates a Box2D shape for given snap shape.
+     * Creates a Box2D shape for given snap shape. Shapes for polygons and other non-trivial shapes are cached
+     * templates shared by bodies with the same geometry (Box2D copies fixture shapes), so they shouldn't be modified.
      */
     public List<org.jbox2d.collision.shapes.Shape> createJboxShapesForShape(Shape aShape)
     {
@@ -238,21 +582,40 @@ public class JBoxWorld {
             }
         }
 
+        // Get transform to center shape around shape midpoint and cache key for centered geometry
+        Rect shapeBounds = aShape.getBounds();
+        Transform centerTransform = new Transform(-shapeBounds.width / 2, -shapeBounds.height / 2);
+        ShapeKey shapeKey = new ShapeKey(aShape, centerTransform, _pixelsToMeters);
+
+        // Get cached shapes - if not found, create for centered shape and add to cache
+        List<org.jbox2d.collision.shapes.Shape> jboxShapes = _jboxShapesCache.get(shapeKey);
+        if (jboxShapes == null) {
+            Shape shapeCentered = aShape.copyForTransform(centerTransform);
+            jboxShapes = createJboxShapesForCenteredShape(shapeCentered);
+            if (_jboxShapesCache.size() >= MAX_CACHED_SHAPES)
+                _jboxShapesCache.clear();
+            _jboxShapesCache.put(shapeKey, jboxShapes);
+        }
+
+        // Return
+        return jboxShapes;
+    }
+
+    /**
+     * Creates Box2D shapes for given polygon or other non-trivial shape centered around its midpoint.
+     */
+    private List<org.jbox2d.collision.shapes.Shape> createJboxShapesForCenteredShape(Shape aShape)
+    {
         // Handle Polygon if Simple, Convex and less than 8 points
         if (aShape instanceof Polygon polygon) {
-            Polygon polygonCentered = polygon.copyForTransform(new Transform(-polygon.getWidth() / 2, -polygon.getHeight() / 2));
-            org.jbox2d.collision.shapes.Shape pshape = createJboxShapeForPolygon(polygonCentered);
+            org.jbox2d.collision.shapes.Shape pshape = createJboxShapeForPolygon(polygon);
             if(pshape != null)
                 return List.of(pshape);
         }
 
-        // Get shape centered around shape midpoint
-        Rect shapeBounds = aShape.getBounds();
-        Shape shapeCentered = aShape.copyForTransform(new Transform(-shapeBounds.width / 2, -shapeBounds.height / 2));
-
         // Get convex Polygons for shape
-        List<Polygon> convexPolys = Polygon.getConvexPolygonsWithMaxSideCount(shapeCentered, 8);
-        return ListUtils.mapNonNull(convexPolys, this::createJboxShapeForPolygon);
+        List<Polygon> convexPolys = Polygon.getConvexPolygonsWithMaxSideCount(aShape, 8);
+        return List.copyOf(ListUtils.mapNonNull(convexPolys, this::createJboxShapeForPolygon));
     }
 
     /**
@@ -313,8 +676,23 @@ public class JBoxWorld {
         jointDef.localAnchorA = convertViewXYToJboxLocal(jointPntA.x, jointPntA.y, viewA);
         jointDef.localAnchorB = convertViewXYToJboxLocal(jointPntB.x, jointPntB.y, viewB);
 
-        // Create joint and return
-        return (RevoluteJoint) _world.createJoint(jointDef);
+        // Create joint and return (locked, in case physics thread is stepping)
+        synchronized (_world) {
+            return (RevoluteJoint) _world.createJoint(jointDef);
+        }
+    }
+
+    /**
+     * Destroys given body or joint (locked, in case physics thread is stepping).
+     */
+    public void destroyJboxNative(Object jboxNative)
+    {
+        synchronized (_world) {
+            if (jboxNative instanceof Body jboxBody)
+                _world.destroyBody(jboxBody);
+            else if (jboxNative instanceof Joint jboxJoint)
+                _world.destroyJoint(jboxJoint);
+        }
     }
 
     /**
@@ -325,21 +703,31 @@ public class JBoxWorld {
     /**
      * Convert View coord to Box2D.
      */
-    public Vec2 convertViewXYToJbox(double aX, double aY)
+    public Vec2 convertViewXYToJbox(double aX, double aY)  { return convertViewXYToJbox(aX, aY, new Vec2()); }
+
+    /**
+     * Convert View coord to Box2D, setting given Vec2 and returning it.
+     */
+    public Vec2 convertViewXYToJbox(double aX, double aY, Vec2 aResult)
     {
         double jboxX = aX / _pixelsToMeters;
         double jboxY = -aY / _pixelsToMeters;
-        return getVec2(jboxX, jboxY);
+        return aResult.set((float) jboxX, (float) jboxY);
     }
 
     /**
      * Convert Box2D coord to View.
      */
-    public Point convertJboxXYToView(double aX, double aY)
+    public Point convertJboxXYToView(double aX, double aY)  { return convertJboxXYToView(aX, aY, new Point()); }
+
+    /**
+     * Convert Box2D coord to View, setting given Point and returning it.
+     */
+    public Point convertJboxXYToView(double aX, double aY, Point aResult)
     {
-        double viewX = aX * _pixelsToMeters;
-        double viewY = -aY * _pixelsToMeters;
-        return new Point(viewX, viewY);
+        aResult.x = aX * _pixelsToMeters;
+        aResult.y = -aY * _pixelsToMeters;
+        return aResult;
     }
 
     /**
@@ -365,4 +753,184 @@ public class JBoxWorld {
      * Return Vec2 for X/Y.
      */
     private static Vec2 getVec2(double aX, double aY)  { return new Vec2((float) aX, (float) aY); }
-}
\ No newline at end of file
+
+    /**
+     * Removes the item at given index by moving last item to index.
+     */
+    private static <T> void removeIndexFast(List<T> aList, int anIndex)
+    {
+        int lastIndex = aList.size() - 1;
+        aList.set(anIndex, aList.get(lastIndex));
+        aList.remove(lastIndex);
+    }
+
+    /**
+     * A cache key for shape geometry (segment types and points rounded to a thousandth of a point) and pixels to
+     * meters.
+     */
+    private static class ShapeKey {
+
+        // The segment types and points followed by pixels to meters
+        private double[] _values;
+
+        // The hash code
+        private int _hashCode;
+
+        /**
+         * Constructor for given shape, transform and pixels to meters.
+         */
+        ShapeKey(Shape aShape, Transform aTrans, double aPixelsToMeters)
+        {
+            // Add segment types and points
+            double[] values = new double[32];
+            int valueCount = 0;
+            double[] points = new double[6];
+            PathIter pathIter = aShape.getPathIter(aTrans);
+            while (pathIter.hasNext()) {
+                Seg seg = pathIter.getNext(points);
+                int pointCount = seg.getCount() * 2;
+                if (valueCount + pointCount + 2 > values.length)
+                    values = Arrays.copyOf(values, values.length * 2 + pointCount);
+                values[valueCount++] = seg.ordinal();
+                for (int i = 0; i < pointCount; i++)
+                    values[valueCount++] = Math.round(points[i] * 1000) / 1000d;
+            }
+
+            // Add pixels to meters
+            values[valueCount++] = aPixelsToMeters;
+            _values = Arrays.copyOf(values, valueCount);
+            _hashCode = Arrays.hashCode(_values);
+        }
+
+        @Override
+        public boolean equals(Object anObj)
+        {
+            return anObj instanceof ShapeKey other && Arrays.equals(_values, other._values);
+        }
+
+        @Override
+        public int hashCode()  { return _hashCode; }
+    }
+
+    /**
+     * A kinematic body with its view and the target position and angle from the view (run on world thread to set
+     * body velocities). Body is only synced when view was moved or rotated (and once more after, to stop it).
+     */
+    private class KinematicBody implements Runnable {
+
+        // The view and body
+        private View _view;
+        private Body _body;
+
+        // The target position and angle in Box2D coords
+        private float _targetX, _targetY;
+        private double _targetAngle;
+
+        // Whether view moved or rotated since last sync and whether last sync moved body
+        private boolean _viewChanged = true, _moving;
+
+        // Whether target is queued for world thread
+        private volatile boolean _queued;
+
+        // The listener to mark view changed
+        private PropChangeListener _viewChangeLsnr = pc -> _viewChanged = true;
+
+        /**
+         * Constructor.
+         */
+        KinematicBody(View aView, Body aBody)
+        {
+            _view = aView;
+            _body = aBody;
+            _view.addPropChangeListener(_viewChangeLsnr, View.X_Prop, View.Y_Prop, View.Rotate_Prop);
+        }
+
+        /**
+         * Returns whether body needs sync (view changed or body is still moving from last sync).
+         */
+        boolean isSyncNeeded()  { return _viewChanged || _moving; }
+
+        /**
+         * Sets target from view position and rotation.
+         */
+        void setTargetFromView()
+        {
+            Vec2 pos = convertViewXYToJbox(_view.getMidX(), _view.getMidY(), _viewToJboxPoint);
+            _targetX = pos.x;
+            _targetY = pos.y;
+            _targetAngle = Math.toRadians(-_view.getRotate());
+            _moving = _viewChanged;
+            _viewChanged = false;
+        }
+
+        /**
+         * Removes view listener.
+         */
+        void dispose()
+        {
+            _view.removePropChangeListener(_viewChangeLsnr, View.X_Prop, View.Y_Prop, View.Rotate_Prop);
+        }
+
+        /**
+         * Sets body velocities to reach target.
+         */
+        public void run()
+        {
+            setJboxBodyVelocityForTarget(_body, _targetX, _targetY, _targetAngle);
+            _queued = false;
+        }
+    }
+
+    /**
+     * A snapshot of dynamic body views and transforms (as previous and current x, y and angle in Box2D coords).
+     */
+    private static class BodySnapshot {
+
+        // The views, bodies and transforms
+        private View[] _views = new View[64];
+        private Body[] _bodies = new Body[64];
+        private float[] _transforms = new float[384];
+        private int _count;
+
+        // The step count when snapshot was written
+        private long _stepCount;
+
+        // The wall clock time when current transforms were due (in nanos)
+        private long _stateTime;
+
+        /**
+         * Adds a view and body with body transform as previous transform.
+         */
+        void add(View aView, Body aBody)
+        {
+            // Grow arrays if needed
+            if (_count == _views.length) {
+                _views = Arrays.copyOf(_views, _count * 2);
+                _bodies = Arrays.copyOf(_bodies, _count * 2);
+                _transforms = Arrays.copyOf(_transforms, _count * 12);
+            }
+
+            // Add view, body and previous transform
+            Vec2 pos = aBody.getPosition();
+            _views[_count] = aView;
+            _bodies[_count] = aBody;
+            _transforms[_count * 6] = pos.x;
+            _transforms[_count * 6 + 1] = pos.y;
+            _transforms[_count * 6 + 2] = aBody.getAngle();
+            _count++;
+        }
+
+        /**
+         * Sets the current transforms from bodies.
+         */
+        void setCurrentTransforms()
+        {
+            for (int i = 0; i < _count; i++) {
+                Vec2 pos = _bodies[i].getPosition();
+                _transforms[i * 6 + 3] = pos.x;
+                _transforms[i * 6 + 4] = pos.y;
+                _transforms[i * 6 + 5] = _bodies[i].getAngle();
+            }
+        }
+    }
+}
@@ -2,7 +2,6 @@ package snapdemos.jbox2d;
 import org.jbox2d.common.Vec2;
 import org.jbox2d.dynamics.Body;
 import org.jbox2d.dynamics.BodyDef;
-import org.jbox2d.dynamics.joints.Joint;
 import org.jbox2d.dynamics.joints.MouseJoint;
 import org.jbox2d.dynamics.joints.MouseJointDef;
 import org.jbox2d.dynamics.joints.RevoluteJoint;
@@ -19,10 +18,13 @@ public class WorldView extends ChildView {
     // The JBox world
     private JBoxWorld _jboxWorld;
 
+    // Whether physics steps on a dedicated thread
+    private boolean _threaded;
+
     // The Runner
     private Runnable _runner;
 
-    // MouseJoint used for dragging
+    // MouseJoint used for dragging (only used on world thread)
     private MouseJoint _dragJoint;
 
     // Static dummy body used by mouse joint for dragging
@@ -31,6 +33,9 @@ public class WorldView extends ChildView {
     // Listener to handle drags
     private EventListener _viewDraggingEventLsnr;
 
+    // Constants
+    private static final int FRAME_MILLIS = 16;
+
     /**
      * Constructor.
      */
@@ -104,16 +109,46 @@ public class WorldView extends ChildView {
         // If already set, just return
         if(aValue == isRunning()) return;
 
-        // Set timer to call timerFired 25 times a second
-        if(_runner == null)
-            ViewEnv.getEnv().runIntervals(_runner = _jboxWorld::stepWorld, JBoxWorld.INTERVAL_MILLIS);
+        // If threaded, start physics thread and set timer to update views from latest snapshot every frame
+        if (_runner == null && _threaded) {
+            _jboxWorld.startThread();
+            ViewEnv.getEnv().runIntervals(_runner = _jboxWorld::syncViewsFromSnapshot, FRAME_MILLIS);
+        }
+
+        // Set timer to step world every frame (world runs fixed steps for elapsed time)
+        else if(_runner == null) {
+            _jboxWorld.resetClock();
+            ViewEnv.getEnv().runIntervals(_runner = _jboxWorld::stepWorld, FRAME_MILLIS);
+        }
 
         else {
             ViewEnv.getEnv().stopIntervals(_runner);
             _runner = null;
+            _jboxWorld.stopThread();
         }
     }
 
+    /**
+     * Returns whether physics steps on a dedicated thread (views are updated from the latest published snapshot).
+     */
+    public boolean isThreaded()  { return _threaded; }
+
+    /**
+     * Sets whether physics steps on a dedicated thread. If set, contact listeners are called on the physics thread
+     * and body changes outside of body/joint creation should use JBoxWorld.runInWorld().
+     */
+    public void setThreaded(boolean aValue)
+    {
+        // If already set, just return
+        if (aValue == isThreaded()) return;
+
+        // Set value (restarting if running)
+        boolean running = isRunning();
+        setRunning(false);
+        _threaded = aValue;
+        setRunning(running);
+    }
+
     /**
      * Adds a child with physics.
      */
@@ -143,10 +178,9 @@ public class WorldView extends ChildView {
         ViewPhysics viewPhysics = removedView.getPhysics();
         Object jboxNative = viewPhysics != null ? viewPhysics.getNative() : null;
         if (jboxNative != null) {
-            if (jboxNative instanceof Body jboxBody)
-                _jboxWorld.getWorld().destroyBody(jboxBody);
-            else if (jboxNative instanceof Joint jboxJoint)
-                _jboxWorld.getWorld().destroyJoint(jboxJoint);
+            if (jboxNative instanceof Body body)
+                _jboxWorld.runInWorld(() -> destroyDragJointForBody(body));
+            _jboxWorld.removeJboxNativeForView(removedView);
             viewPhysics.setNative(null);
         }
 
@@ -180,9 +214,10 @@ public class WorldView extends ChildView {
         viewPhysics.setDynamic(true);
         Body body = _jboxWorld.createJboxBodyForView(aView);
 
-        // Add view <--> body links
+        // Add view <--> body links and sync body with view
         viewPhysics.setNative(body);
         body.setUserData(aView);
+        _jboxWorld.addJboxNativeForView(aView);
 
         // Enable dragging
         if (viewPhysics.isDraggable())
@@ -197,6 +232,7 @@ public class WorldView extends ChildView {
         // Create joint and add to view
         RevoluteJoint joint = _jboxWorld.createJboxJointForView(aView);
         aView.getPhysics(true).setNative(joint);
+        _jboxWorld.addJboxNativeForView(aView);
 
         // Remove view for joint
         aView.getParent(ChildView.class).removeChild(aView);
@@ -224,27 +260,62 @@ public class WorldView extends ChildView {
 
         // Handle MousePress: Create & install drag MouseJoint
         if (anEvent.isMousePress()) {
-            MouseJointDef jdef = new MouseJointDef();
-            jdef.bodyA = getDragGroundBody();
-            jdef.bodyB = dragBody;
-            jdef.collideConnected = true;
-            jdef.maxForce = 1000f * dragBody.getMass();
-            jdef.target.set(_jboxWorld.convertViewXYToJbox(dragPoint.x, dragPoint.y));
-            _dragJoint = (MouseJoint) _jboxWorld.getWorld().createJoint(jdef);
-            dragBody.setAwake(true);
+            Vec2 dragPointInJbox = _jboxWorld.convertViewXYToJbox(dragPoint.x, dragPoint.y);
+            _jboxWorld.runInWorld(() -> createDragJoint(dragBody, dragPointInJbox));
         }
 
         // Handle MouseDrag: Update drag MouseJoint
         else if (anEvent.isMouseDrag()) {
             Vec2 dragPointInJbox = _jboxWorld.convertViewXYToJbox(dragPoint.x, dragPoint.y);
-            _dragJoint.setTarget(dragPointInJbox);
+            _jboxWorld.runInWorld(() -> setDragJointTarget(dragPointInJbox));
         }
 
         // Handle MouseRelease: Remove drag MouseJoint
-        else if (anEvent.isMouseRelease()) {
-            _jboxWorld.getWorld().destroyJoint(_dragJoint);
-            _dragJoint = null;
-        }
+        else if (anEvent.isMouseRelease())
+            _jboxWorld.runInWorld(this::destroyDragJoint);
+    }
+
+    /**
+     * Creates and installs drag MouseJoint for given body and target (on world thread).
+     */
+    private void createDragJoint(Body dragBody, Vec2 aTarget)
+    {
+        MouseJointDef jdef = new MouseJointDef();
+        jdef.bodyA = getDragGroundBody();
+        jdef.bodyB = dragBody;
+        jdef.collideConnected = true;
+        jdef.maxForce = 1000f * dragBody.getMass();
+        jdef.target.set(aTarget);
+        _dragJoint = (MouseJoint) _jboxWorld.getWorld().createJoint(jdef);
+        dragBody.setAwake(true);
+    }
+
+    /**
+     * Sets the drag MouseJoint target (on world thread).
+     */
+    private void setDragJointTarget(Vec2 aTarget)
+    {
+        if (_dragJoint != null)
+            _dragJoint.setTarget(aTarget);
+    }
+
+    /**
+     * Removes the drag MouseJoint (on world thread).
+     */
+    private void destroyDragJoint()
+    {
+        if (_dragJoint == null) return;
+        _jboxWorld.getWorld().destroyJoint(_dragJoint);
+        _dragJoint = null;
+    }
+
+    /**
+     * Removes the drag MouseJoint if it drags given body, since Box2D frees it with body (on world thread).
+     */
+    private void destroyDragJointForBody(Body aBody)
+    {
+        if (_dragJoint != null && _dragJoint.getBodyB() == aBody)
+            destroyDragJoint();
     }
 
     /** Returns the static dummy body used by mouse joint for dragging. */
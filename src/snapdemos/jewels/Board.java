@@ -0,0 +1,323 @@
+package snapdemos.jewels;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A UI-free class to represent the grid of gems. Each cell holds a gem id (color) and each color also has a bitboard
+ * (bit N is set if cell N holds that color, where N = y * width + x), so every horizontal and vertical run of three
+ * or more is found in one pass of shifts and ANDs. A cell can also hold a special gem (line-clear or bomb), which
+ * matches by color and clears more cells when cleared.
+ */
+public class Board {
+
+    // The grid width and height
+    private int _width, _height;
+
+    // The number of gem colors
+    private int _colorCount;
+
+    // The gem id for each cell (or EMPTY)
+    private byte[] _gemIds;
+
+    // The special kind for each cell (or SPECIAL_NONE)
+    private byte[] _specials;
+
+    // The bitboard for each gem color
+    private long[][] _colorBits;
+
+    // The number of words in a bitboard
+    private int _wordCount;
+
+    // The bitboard of cells that can start a horizontal run of three (x <= width - 3)
+    private long[] _runStartBits;
+
+    // Scratch bitboards for match search
+    private long[] _shiftBits1, _shiftBits2, _runBits;
+
+    // The random to generate new gems
+    private Random _random = new Random();
+
+    // Constants
+    public static final int EMPTY = -1;
+    public static final int MAX_SIZE = 256;
+
+    // Constants for special gems: Clears row, column, row and column, or 3x3 cells around it
+    public static final int SPECIAL_NONE = 0;
+    public static final int SPECIAL_ROW = 1;
+    public static final int SPECIAL_COLUMN = 2;
+    public static final int SPECIAL_CROSS = 3;
+    public static final int SPECIAL_BOMB = 4;
+
+    /**
+     * Constructor for given width, height and color count.
+     */
+    public Board(int aWidth, int aHeight, int aColorCount)
+    {
+        if (aWidth < 1 || aHeight < 1 || aWidth > MAX_SIZE || aHeight > MAX_SIZE)
+            throw new IllegalArgumentException("Board: Size must be 1 to " + MAX_SIZE + ": " + aWidth + "x" + aHeight);
+        _width = aWidth;
+        _height = aHeight;
+        _colorCount = aColorCount;
+        _gemIds = new byte[aWidth * aHeight];
+        Arrays.fill(_gemIds, (byte) EMPTY);
+        _specials = new byte[aWidth * aHeight];
+        _wordCount = (aWidth * aHeight + 63) >>> 6;
+        _colorBits = new long[aColorCount][_wordCount];
+        _shiftBits1 = new long[_wordCount];
+        _shiftBits2 = new long[_wordCount];
+        _runBits = new long[_wordCount];
+
+        // Create run start bits
+        _runStartBits = new long[_wordCount];
+        for (int y = 0; y < aHeight; y++)
+            for (int x = 0; x + 2 < aWidth; x++)
+                setBit(_runStartBits, y * aWidth + x);
+    }
+
+    /**
+     * Returns the grid width.
+     */
+    public int getWidth()  { return _width; }
+
+    /**
+     * Returns the grid height.
+     */
+    public int getHeight()  { return _height; }
+
+    /**
+     * Returns the number of gem colors.
+     */
+    public int getColorCount()  { return _colorCount; }
+
+    /**
+     * Returns the number of cells.
+     */
+    public int getCellCount()  { return _gemIds.length; }
+
+    /**
+     * Returns the gem id at given x/y (or EMPTY).
+     */
+    public int getGemId(int aX, int aY)  { return _gemIds[aY * _width + aX]; }
+
+    /**
+     * Sets the gem id at given x/y (or EMPTY, which also clears special).
+     */
+    public void setGemId(int aX, int aY, int aGemId)
+    {
+        int cell = aY * _width + aX;
+        int oldId = _gemIds[cell];
+        if (aGemId == EMPTY)
+            _specials[cell] = SPECIAL_NONE;
+        if (oldId == aGemId) return;
+        if (oldId != EMPTY)
+            clearBit(_colorBits[oldId], cell);
+        if (aGemId != EMPTY)
+            setBit(_colorBits[aGemId], cell);
+        _gemIds[cell] = (byte) aGemId;
+    }
+
+    /**
+     * Returns the special kind at given x/y (or SPECIAL_NONE).
+     */
+    public int getSpecial(int aX, int aY)  { return _specials[aY * _width + aX]; }
+
+    /**
+     * Sets the special kind at given x/y (or SPECIAL_NONE).
+     */
+    public void setSpecial(int aX, int aY, int aSpecial)  { _specials[aY * _width + aX] = (byte) aSpecial; }
+
+    /**
+     * Swaps the gems (and specials) at given cells.
+     */
+    public void swapGems(int aX1, int aY1, int aX2, int aY2)
+    {
+        int gemId1 = getGemId(aX1, aY1), special1 = getSpecial(aX1, aY1);
+        setGemId(aX1, aY1, getGemId(aX2, aY2));
+        setSpecial(aX1, aY1, getSpecial(aX2, aY2));
+        setGemId(aX2, aY2, gemId1);
+        setSpecial(aX2, aY2, special1);
+    }
+
+    /**
+     * Returns the number of gems that would be matched by swapping gems at given cells (zero if not a valid move).
+     */
+    public int getSwapMatchCount(int aX1, int aY1, int aX2, int aY2)
+    {
+        // If gems are the same or either cell is empty, return 0
+        int cell1 = aY1 * _width + aX1;
+        int cell2 = aY2 * _width + aX2;
+        byte gemId1 = _gemIds[cell1], gemId2 = _gemIds[cell2];
+        if (gemId1 == gemId2 || gemId1 == EMPTY || gemId2 == EMPTY)
+            return 0;
+
+        // Swap gem ids (bitboards aren't needed), get match counts at both cells and swap back
+        _gemIds[cell1] = gemId2;
+        _gemIds[cell2] = gemId1;
+        int matchCount = getMatchCountAt(aX1, aY1) + getMatchCountAt(aX2, aY2);
+        _gemIds[cell1] = gemId1;
+        _gemIds[cell2] = gemId2;
+        return matchCount;
+    }
+
+    /**
+     * Returns the number of gems in horizontal and vertical runs of three or more through given cell.
+     */
+    private int getMatchCountAt(int aX, int aY)
+    {
+        // Get run extents left/right and up/down
+        int gemId = getGemId(aX, aY);
+        int x0 = aX, x1 = aX, y0 = aY, y1 = aY;
+        while (x0 > 0 && getGemId(x0 - 1, aY) == gemId) x0--;
+        while (x1 + 1 < _width && getGemId(x1 + 1, aY) == gemId) x1++;
+        while (y0 > 0 && getGemId(aX, y0 - 1) == gemId) y0--;
+        while (y1 + 1 < _height && getGemId(aX, y1 + 1) == gemId) y1++;
+
+        // Return count of runs of three or more (cell counted once)
+        int runX = x1 - x0 + 1, runY = y1 - y0 + 1;
+        int matchCount = (runX >= 3 ? runX : 0) + (runY >= 3 ? runY : 0);
+        return runX >= 3 && runY >= 3 ? matchCount - 1 : matchCount;
+    }
+
+    /**
+     * Returns the random to generate new gems.
+     */
+    public Random getRandom()  { return _random; }
+
+    /**
+     * Sets the seed for new gems.
+     */
+    public void setSeed(long aSeed)  { _random.setSeed(aSeed); }
+
+    /**
+     * Returns a random gem id for a new gem.
+     */
+    public int getRandomGemId()  { return _random.nextInt(_colorCount); }
+
+    /**
+     * Fills the board with random gems.
+     */
+    public void fillRandom()
+    {
+        for (int y = 0; y < _height; y++)
+            for (int x = 0; x < _width; x++)
+                setGemId(x, y, getRandomGemId());
+    }
+
+    /**
+     * Returns a new empty bitboard for this board size.
+     */
+    public long[] newBits()  { return new long[_wordCount]; }
+
+    /**
+     * Returns a new bitboard with the cells in given rect (inclusive) set.
+     */
+    public long[] getBitsForRect(int aX0, int aY0, int aX1, int aY1)
+    {
+        long[] bits = newBits();
+        for (int y = Math.max(aY0, 0); y <= Math.min(aY1, _height - 1); y++)
+            for (int x = Math.max(aX0, 0); x <= Math.min(aX1, _width - 1); x++)
+                setBit(bits, y * _width + x);
+        return bits;
+    }
+
+    /**
+     * Finds every horizontal and vertical run of three or more same color gems and sets their cells in given
+     * bitboard (which is cleared first). Returns the number of matched cells.
+     */
+    public int findMatches(long[] matchBits)
+    {
+        // Clear match bits
+        Arrays.fill(matchBits, 0);
+
+        // Iterate over colors and add runs
+        for (long[] colorBits : _colorBits) {
+
+            // Add horizontal runs: Run starts are cells that match cells one and two to the right
+            shiftDown(colorBits, 1, _shiftBits1);
+            shiftDown(colorBits, 2, _shiftBits2);
+            for (int i = 0; i < _wordCount; i++)
+                _runBits[i] = colorBits[i] & _shiftBits1[i] & _shiftBits2[i] & _runStartBits[i];
+            addRunBits(_runBits, 1, matchBits);
+
+            // Add vertical runs: Run starts are cells that match cells one and two below
+            shiftDown(colorBits, _width, _shiftBits1);
+            shiftDown(colorBits, _width * 2, _shiftBits2);
+            for (int i = 0; i < _wordCount; i++)
+                _runBits[i] = colorBits[i] & _shiftBits1[i] & _shiftBits2[i];
+            addRunBits(_runBits, _width, matchBits);
+        }
+
+        // Return matched cell count
+        return getBitCount(matchBits);
+    }
+
+    /**
+     * Returns whether board has any match.
+     */
+    public boolean hasMatch()  { return findMatches(newBits()) > 0; }
+
+    /**
+     * Adds the cells of runs that start at given run bits (with given step between run cells) to given match bits.
+     */
+    private void addRunBits(long[] runBits, int aStep, long[] matchBits)
+    {
+        shiftUp(runBits, aStep, _shiftBits1);
+        shiftUp(runBits, aStep * 2, _shiftBits2);
+        for (int i = 0; i < _wordCount; i++)
+            matchBits[i] |= runBits[i] | _shiftBits1[i] | _shiftBits2[i];
+    }
+
+    /**
+     * Returns the number of set bits in given bitboard.
+     */
+    public static int getBitCount(long[] theBits)
+    {
+        int count = 0;
+        for (long word : theBits)
+            count += Long.bitCount(word);
+        return count;
+    }
+
+    /**
+     * Sets the bit for given cell in given bitboard.
+     */
+    public static void setBit(long[] theBits, int aCell)  { theBits[aCell >>> 6] |= 1L << aCell; }
+
+    /**
+     * Clears the bit for given cell in given bitboard.
+     */
+    public static void clearBit(long[] theBits, int aCell)  { theBits[aCell >>> 6] &= ~(1L << aCell); }
+
+    /**
+     * Returns whether bit for given cell is set in given bitboard.
+     */
+    public static boolean isBitSet(long[] theBits, int aCell)  { return (theBits[aCell >>> 6] & (1L << aCell)) != 0; }
+
+    /**
+     * Shifts given bitboard toward lower cells by given count into given destination (cell N gets cell N + count).
+     */
+    private static void shiftDown(long[] srcBits, int aCount, long[] dstBits)
+    {
+        int wordShift = aCount >>> 6, bitShift = aCount & 63, length = srcBits.length;
+        for (int i = 0; i < length; i++) {
+            int j = i + wordShift;
+            long lo = j < length ? srcBits[j] >>> bitShift : 0;
+            long hi = bitShift != 0 && j + 1 < length ? srcBits[j + 1] << (64 - bitShift) : 0;
+            dstBits[i] = lo | hi;
+        }
+    }
+
+    /**
+     * Shifts given bitboard toward higher cells by given count into given destination (cell N gets cell N - count).
+     */
+    private static void shiftUp(long[] srcBits, int aCount, long[] dstBits)
+    {
+        int wordShift = aCount >>> 6, bitShift = aCount & 63;
+        for (int i = srcBits.length - 1; i >= 0; i--) {
+            int j = i - wordShift;
+            long lo = j >= 0 ? srcBits[j] << bitShift : 0;
+            long hi = bitShift != 0 && j - 1 >= 0 ? srcBits[j - 1] >>> (64 - bitShift) : 0;
+            dstBits[i] = lo | hi;
+        }
+    }
+}
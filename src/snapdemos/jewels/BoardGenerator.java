@@ -0,0 +1,129 @@
+package snapdemos.jewels;
+import java.util.Random;
+
+/**
+ * A class to fill a board from a seed in a single O(cells) pass, with no matches and at least one valid move
+ * (the same seed always gives the same board and the same refill gems).
+ * A move is planted first as an L of three same color gems (two in a row and one diagonally below the next cell),
+ * then cells are filled in row order with random colors that don't complete a run with any filled cell.
+ */
+public class BoardGenerator {
+
+    // The random
+    private Random _random;
+
+    // The seed
+    private long _seed;
+
+    // Constants
+    private static final int MAX_ATTEMPTS = 100;
+
+    /**
+     * Constructor for given seed.
+     */
+    public BoardGenerator(long aSeed)
+    {
+        _seed = aSeed;
+        _random = new Random(aSeed);
+    }
+
+    /**
+     * Returns the seed.
+     */
+    public long getSeed()  { return _seed; }
+
+    /**
+     * Fills given board with no matches and a valid move (if board size and color count allow), then seeds board
+     * refill gems. Returns whether board has no matches and a valid move.
+     */
+    public boolean fill(Board aBoard)
+    {
+        // Fill (retrying only if color count is too low to always find a run free color)
+        boolean filled = false;
+        for (int i = 0; i < MAX_ATTEMPTS && !filled; i++)
+            filled = fillOnce(aBoard);
+
+        // Seed board refill gems and return
+        aBoard.setSeed(_random.nextLong());
+        return filled;
+    }
+
+    /**
+     * Fills given board in one pass. Returns whether every cell got a run free color.
+     */
+    private boolean fillOnce(Board aBoard)
+    {
+        // Clear board
+        int width = aBoard.getWidth(), height = aBoard.getHeight();
+        for (int y = 0; y < height; y++)
+            for (int x = 0; x < width; x++)
+                aBoard.setGemId(x, y, Board.EMPTY);
+
+        // Plant move: gems at (x,y), (x+1,y) and (x+2,y+1) in a row of width three (or transposed if too narrow),
+        // so swapping (x+2,y) and (x+2,y+1) completes the row
+        int colorCount = aBoard.getColorCount();
+        int gemId = _random.nextInt(colorCount);
+        if (width >= 3 && height >= 2) {
+            int x = _random.nextInt(width - 2), y = _random.nextInt(height - 1);
+            aBoard.setGemId(x, y, gemId);
+            aBoard.setGemId(x + 1, y, gemId);
+            aBoard.setGemId(x + 2, y + 1, gemId);
+        }
+        else if (width >= 2 && height >= 3) {
+            int x = _random.nextInt(width - 1), y = _random.nextInt(height - 2);
+            aBoard.setGemId(x, y, gemId);
+            aBoard.setGemId(x, y + 1, gemId);
+            aBoard.setGemId(x + 1, y + 2, gemId);
+        }
+
+        // Fill empty cells in row order with random color that doesn't complete a run
+        boolean runFree = true;
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                if (aBoard.getGemId(x, y) != Board.EMPTY)
+                    continue;
+                int cellGemId = _random.nextInt(colorCount);
+                int i = 0;
+                while (i < colorCount && isRunCompletedAt(aBoard, x, y, cellGemId)) {
+                    cellGemId = (cellGemId + 1) % colorCount;
+                    i++;
+                }
+                runFree &= i < colorCount;
+                aBoard.setGemId(x, y, cellGemId);
+            }
+        }
+
+        // Return
+        return runFree;
+    }
+
+    /**
+     * Returns whether given gem at given cell completes a run of three with filled cells (cell can be at the start,
+     * middle or end of the run, in row or column).
+     */
+    static boolean isRunCompletedAt(Board aBoard, int aX, int aY, int aGemId)
+    {
+        return isRunCompletedAt(aBoard, aX, aY, aGemId, 1, 0) || isRunCompletedAt(aBoard, aX, aY, aGemId, 0, 1);
+    }
+
+    /**
+     * Returns whether given gem at given cell completes a run of three with filled cells in given direction.
+     */
+    private static boolean isRunCompletedAt(Board aBoard, int aX, int aY, int aGemId, int dx, int dy)
+    {
+        boolean prev1 = isGemAt(aBoard, aX - dx, aY - dy, aGemId);
+        boolean next1 = isGemAt(aBoard, aX + dx, aY + dy, aGemId);
+        return prev1 && (next1 || isGemAt(aBoard, aX - dx * 2, aY - dy * 2, aGemId)) ||
+                next1 && isGemAt(aBoard, aX + dx * 2, aY + dy * 2, aGemId);
+    }
+
+    /**
+     * Returns whether given gem is at given cell (false if outside board).
+     */
+    private static boolean isGemAt(Board aBoard, int aX, int aY, int aGemId)
+    {
+        if (aX < 0 || aY < 0 || aX >= aBoard.getWidth() || aY >= aBoard.getHeight())
+            return false;
+        return aBoard.getGemId(aX, aY) == aGemId;
+    }
+}
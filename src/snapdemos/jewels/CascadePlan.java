@@ -0,0 +1,161 @@
+package snapdemos.jewels;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class to hold the complete sequence of cascade steps resolved for a move (or refill), so PlayView can animate
+ * every step without searching the board again. Each step clears a set of cells (including every cell cleared by
+ * special gem chains), turns some matched gems into special gems, then moves gems down into the gaps and drops new
+ * gems in from above the board.
+ */
+public class CascadePlan {
+
+    // The steps
+    private List<Step> _steps = new ArrayList<>();
+
+    // Whether board has no matches after last step (false if resolver stopped early)
+    private boolean _stable = true;
+
+    /**
+     * Constructor.
+     */
+    public CascadePlan()
+    {
+        super();
+    }
+
+    /**
+     * Returns whether plan has no steps (the move made no match).
+     */
+    public boolean isEmpty()  { return _steps.isEmpty(); }
+
+    /**
+     * Returns the number of steps.
+     */
+    public int getStepCount()  { return _steps.size(); }
+
+    /**
+     * Returns the individual step at given index.
+     */
+    public Step getStep(int anIndex)  { return _steps.get(anIndex); }
+
+    /**
+     * Adds a step.
+     */
+    public void addStep(Step aStep)  { _steps.add(aStep); }
+
+    /**
+     * Returns whether board has no matches after last step (false if resolver stopped at max steps, so caller should
+     * reshuffle the board).
+     */
+    public boolean isStable()  { return _stable; }
+
+    /**
+     * Sets whether board has no matches after last step.
+     */
+    public void setStable(boolean aValue)  { _stable = aValue; }
+
+    /**
+     * Returns the total number of cleared cells for all steps.
+     */
+    public int getClearCount()
+    {
+        int clearCount = 0;
+        for (Step step : _steps)
+            clearCount += step.getClearCount();
+        return clearCount;
+    }
+
+    /**
+     * A class to represent a single cascade step: cleared cells, new special gems and gem falls.
+     */
+    public static class Step {
+
+        // The cleared cells (as cell index: y * width + x)
+        private int[] _clearCells;
+
+        // The new special gems (as pairs of cell index and special kind, set before falls)
+        private int[] _specials;
+
+        // The falls (as groups of x, from y, to y, gem id and special - from y is negative for new gems above board)
+        private int[] _falls;
+
+        // The maximum number of rows any gem falls
+        private int _maxFallRows;
+
+        // Constants
+        public static final int FALL_SIZE = 5;
+
+        /**
+         * Constructor.
+         */
+        public Step(int[] theClearCells, int[] theSpecials, int[] theFalls)
+        {
+            _clearCells = theClearCells;
+            _specials = theSpecials;
+            _falls = theFalls;
+            for (int i = 0; i < theFalls.length; i += FALL_SIZE)
+                _maxFallRows = Math.max(_maxFallRows, theFalls[i + 2] - theFalls[i + 1]);
+        }
+
+        /**
+         * Returns the number of cleared cells.
+         */
+        public int getClearCount()  { return _clearCells.length; }
+
+        /**
+         * Returns the cell index of cleared cell at given index.
+         */
+        public int getClearCell(int anIndex)  { return _clearCells[anIndex]; }
+
+        /**
+         * Returns the number of new special gems.
+         */
+        public int getSpecialCount()  { return _specials.length / 2; }
+
+        /**
+         * Returns the cell index of new special gem at given index.
+         */
+        public int getSpecialCell(int anIndex)  { return _specials[anIndex * 2]; }
+
+        /**
+         * Returns the special kind of new special gem at given index.
+         */
+        public int getSpecialKind(int anIndex)  { return _specials[anIndex * 2 + 1]; }
+
+        /**
+         * Returns the number of falls.
+         */
+        public int getFallCount()  { return _falls.length / FALL_SIZE; }
+
+        /**
+         * Returns the grid x of fall at given index.
+         */
+        public int getFallX(int anIndex)  { return _falls[anIndex * FALL_SIZE]; }
+
+        /**
+         * Returns the grid y that fall at given index starts from (negative if new gem above board).
+         */
+        public int getFallFromY(int anIndex)  { return _falls[anIndex * FALL_SIZE + 1]; }
+
+        /**
+         * Returns the grid y that fall at given index ends at.
+         */
+        public int getFallToY(int anIndex)  { return _falls[anIndex * FALL_SIZE + 2]; }
+
+        /**
+         * Returns the gem id of fall at given index.
+         */
+        public int getFallGemId(int anIndex)  { return _falls[anIndex * FALL_SIZE + 3]; }
+
+        /**
+         * Returns the special kind of fall at given index.
+         */
+        public int getFallSpecial(int anIndex)  { return _falls[anIndex * FALL_SIZE + 4]; }
+
+        /**
+         * Returns the maximum number of rows any gem falls.
+         */
+        public int getMaxFallRows()  { return _maxFallRows; }
+    }
+}
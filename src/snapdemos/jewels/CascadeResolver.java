@@ -0,0 +1,438 @@
+package snapdemos.jewels;
+import java.util.Arrays;
+
+/**
+ * A class to resolve a complete cascade on a board ahead of time: find every match in one bitboard pass, clear the
+ * matched cells, move gems above them down, refill from above, and repeat until the board has no matches.
+ * The board ends in its final state and each clear/fall pass is recorded as a step in the returned CascadePlan.
+ *
+ * Runs of four make a row or column gem, runs of five or more make a cross gem and crossing runs (L/T shapes) make a
+ * bomb, at the swapped cell (or the middle of the run). Cleared special gems are triggered from a work queue: each
+ * cell is scheduled once (in clear bits) and each special gem clears its whole row, column or 3x3 area (each row and
+ * column is swept at most once per step), so a chain reaction is linear in the number of cells it clears.
+ *
+ * After CALM_STEPS, matches make no new special gems and refill gems don't complete a run, so a cascade ends on its
+ * own even on a large board (where line clears would otherwise keep re-seeding line gems). As a safety net, a cascade
+ * that still has matches at MAX_STEPS is marked unstable, so the caller can reshuffle the board.
+ */
+public class CascadeResolver {
+
+    // The board
+    private Board _board;
+
+    // The board width and height
+    private int _width, _height;
+
+    // The bitboard of cells to clear
+    private long[] _clearBits;
+
+    // The bitboards of cells in horizontal and vertical runs
+    private long[] _hRunBits, _vRunBits;
+
+    // The runs in current match (as groups of start cell, cell step and length)
+    private int[] _runs = new int[48];
+    private int _runsLength;
+
+    // The new special gems for current step (as pairs of cell and special kind) and count of ints used
+    private int[] _specials = new int[16];
+    private int _specialsLength;
+
+    // The queue of triggered special gem cells and length
+    private int[] _queue;
+    private int _queueLength;
+
+    // Whether each row and column was swept by a special gem in current trigger pass
+    private boolean[] _sweptRows, _sweptColumns;
+
+    // The cells of the swap that started the cascade (preferred cells for new special gems) or -1
+    private int _swapCell1 = -1, _swapCell2 = -1;
+
+    // The lowest cleared row for each column (or -1 if none), then the lowest open row after gems fall
+    private int[] _colBottoms;
+
+    // The falls buffer for current step (as groups of x, from y, to y, gem id and special) and count of ints used
+    private int[] _falls = new int[80];
+    private int _fallsLength;
+
+    // Constants
+    private static final int CALM_STEPS = 4;
+    private static final int MAX_STEPS = 100;
+
+    /**
+     * Constructor for given board.
+     */
+    public CascadeResolver(Board aBoard)
+    {
+        _board = aBoard;
+        _width = aBoard.getWidth();
+        _height = aBoard.getHeight();
+        _clearBits = aBoard.newBits();
+        _hRunBits = aBoard.newBits();
+        _vRunBits = aBoard.newBits();
+        _queue = new int[aBoard.getCellCount()];
+        _sweptRows = new boolean[_height];
+        _sweptColumns = new boolean[_width];
+        _colBottoms = new int[_width];
+    }
+
+    /**
+     * Returns the board.
+     */
+    public Board getBoard()  { return _board; }
+
+    /**
+     * Resolves all matches on board and returns the plan (empty if board has no matches).
+     */
+    public CascadePlan resolve()  { return resolveClear(null); }
+
+    /**
+     * Resolves all matches on board after a swap of given cells (new special gems from first match go at the swapped
+     * cells) and returns the plan.
+     */
+    public CascadePlan resolveSwap(int aX1, int aY1, int aX2, int aY2)
+    {
+        _swapCell1 = aY1 * _width + aX1;
+        _swapCell2 = aY2 * _width + aX2;
+        CascadePlan plan = resolveClear(null);
+        _swapCell1 = _swapCell2 = -1;
+        return plan;
+    }
+
+    /**
+     * Clears given cells (if not null), then resolves all matches on board and returns the plan.
+     */
+    public CascadePlan resolveClear(long[] clearBits)
+    {
+        CascadePlan plan = new CascadePlan();
+
+        // If clear bits given, do first step with them
+        if (clearBits != null && Board.getBitCount(clearBits) > 0) {
+            System.arraycopy(clearBits, 0, _clearBits, 0, _clearBits.length);
+            _specialsLength = 0;
+            plan.addStep(clearAndFall(false));
+        }
+
+        // Find matches and clear until board has none (only first match uses swap cells, and after CALM_STEPS matches
+        // make no special gems and refill is run free, so chain ends)
+        while (plan.getStepCount() < MAX_STEPS && _board.findMatches(_clearBits) > 0) {
+            boolean isCalm = plan.getStepCount() >= CALM_STEPS;
+            if (!isCalm)
+                addMatchSpecials();
+            else _specialsLength = 0;
+            plan.addStep(clearAndFall(isCalm));
+            _swapCell1 = _swapCell2 = -1;
+        }
+
+        // If stopped at max steps, mark plan unstable if board still has matches (just a safety net)
+        if (plan.getStepCount() >= MAX_STEPS && _board.hasMatch())
+            plan.setStable(false);
+
+        // Return
+        return plan;
+    }
+
+    /**
+     * Finds the runs in clear bits (matched cells) and adds a new special gem for each run of four or more and each
+     * crossing of runs, removing its cell from clear bits (so gem stays to become special).
+     */
+    private void addMatchSpecials()
+    {
+        // Find horizontal runs, then vertical runs (runs are found from their first cell, so each is scanned once)
+        _runsLength = _specialsLength = 0;
+        Arrays.fill(_hRunBits, 0);
+        Arrays.fill(_vRunBits, 0);
+        findRuns(1);
+        int hRunsLength = _runsLength;
+        findRuns(_width);
+
+        // Add bomb at first crossing of each vertical run with a horizontal run
+        for (int i = hRunsLength; i < _runsLength; i += 3) {
+            int start = _runs[i], length = _runs[i + 2];
+            for (int j = 0; j < length; j++) {
+                int cell = start + j * _width;
+                if (Board.isBitSet(_hRunBits, cell)) {
+                    addSpecial(cell, Board.SPECIAL_BOMB);
+                    _runs[i + 2] = 0;
+                    break;
+                }
+            }
+        }
+
+        // Add line gem for each run of four or more that doesn't cross another run
+        for (int i = 0; i < _runsLength; i += 3) {
+            int start = _runs[i], step = _runs[i + 1], length = _runs[i + 2];
+            if (length < 4 || step == 1 && isRunCrossed(start, length))
+                continue;
+            int special = length >= 5 ? Board.SPECIAL_CROSS : step == 1 ? Board.SPECIAL_ROW : Board.SPECIAL_COLUMN;
+            int cell = getRunSpecialCell(start, step, length);
+            if (cell >= 0)
+                addSpecial(cell, special);
+        }
+    }
+
+    /**
+     * Finds the runs of three or more matched cells with given cell step (1 for horizontal, width for vertical).
+     */
+    private void findRuns(int aStep)
+    {
+        for (int i = 0; i < _clearBits.length; i++) {
+            for (long word = _clearBits[i]; word != 0; word &= word - 1) {
+
+                // If cell doesn't start a run in step direction, skip
+                int cell = i * 64 + Long.numberOfTrailingZeros(word);
+                int x = cell % _width, y = cell / _width;
+                int gemId = _board.getGemId(x, y);
+                boolean isFirst = aStep == 1 ? x == 0 || _board.getGemId(x - 1, y) != gemId :
+                        y == 0 || _board.getGemId(x, y - 1) != gemId;
+                if (!isFirst)
+                    continue;
+
+                // Get run length (just skip if less than three)
+                int length = 1;
+                if (aStep == 1)
+                    while (x + length < _width && _board.getGemId(x + length, y) == gemId) length++;
+                else while (y + length < _height && _board.getGemId(x, y + length) == gemId) length++;
+                if (length < 3)
+                    continue;
+
+                // Add run and mark run cells
+                if (_runsLength + 3 > _runs.length)
+                    _runs = Arrays.copyOf(_runs, _runs.length * 2);
+                _runs[_runsLength++] = cell;
+                _runs[_runsLength++] = aStep;
+                _runs[_runsLength++] = length;
+                long[] runBits = aStep == 1 ? _hRunBits : _vRunBits;
+                for (int j = 0; j < length; j++)
+                    Board.setBit(runBits, cell + j * aStep);
+            }
+        }
+    }
+
+    /**
+     * Returns whether horizontal run at given start cell and length is crossed by a vertical run.
+     */
+    private boolean isRunCrossed(int aStart, int aLength)
+    {
+        for (int i = 0; i < aLength; i++)
+            if (Board.isBitSet(_vRunBits, aStart + i))
+                return true;
+        return false;
+    }
+
+    /**
+     * Returns the cell for a run's new special gem: a swapped cell in run, or the middle cell (or nearest cell without
+     * special), or -1 if every cell already has a special.
+     */
+    private int getRunSpecialCell(int aStart, int aStep, int aLength)
+    {
+        // If swapped cell in run, return it
+        for (int swapCell : new int[] { _swapCell1, _swapCell2 })
+            if (swapCell >= 0 && isCellInRun(swapCell, aStart, aStep, aLength) && getSpecial(swapCell) == Board.SPECIAL_NONE)
+                return swapCell;
+
+        // Return middle cell or nearest cell without special
+        for (int i = 0; i < aLength; i++) {
+            int index = (aLength / 2 + i) % aLength;
+            int cell = aStart + index * aStep;
+            if (getSpecial(cell) == Board.SPECIAL_NONE)
+                return cell;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns whether given cell is in run with given start cell, step and length.
+     */
+    private static boolean isCellInRun(int aCell, int aStart, int aStep, int aLength)
+    {
+        int offset = aCell - aStart;
+        return offset >= 0 && offset % aStep == 0 && offset / aStep < aLength;
+    }
+
+    /**
+     * Adds a new special gem for given cell (if cell has no special) and removes cell from clear bits.
+     */
+    private void addSpecial(int aCell, int aSpecial)
+    {
+        if (getSpecial(aCell) != Board.SPECIAL_NONE || !Board.isBitSet(_clearBits, aCell))
+            return;
+        if (_specialsLength + 2 > _specials.length)
+            _specials = Arrays.copyOf(_specials, _specials.length * 2);
+        _specials[_specialsLength++] = aCell;
+        _specials[_specialsLength++] = aSpecial;
+        Board.clearBit(_clearBits, aCell);
+    }
+
+    /**
+     * Adds the cells cleared by special gems in clear bits (and by special gems those clear, and so on) to clear bits.
+     * Each cell is queued at most once.
+     */
+    private void triggerSpecials()
+    {
+        // Queue special gems in clear bits (and reset swept lines)
+        _queueLength = 0;
+        Arrays.fill(_sweptRows, false);
+        Arrays.fill(_sweptColumns, false);
+        for (int i = 0; i < _clearBits.length; i++) {
+            for (long word = _clearBits[i]; word != 0; word &= word - 1) {
+                int cell = i * 64 + Long.numberOfTrailingZeros(word);
+                if (getSpecial(cell) != Board.SPECIAL_NONE)
+                    _queue[_queueLength++] = cell;
+            }
+        }
+
+        // Process queue (which grows as cleared cells with special gems are added)
+        for (int i = 0; i < _queueLength; i++) {
+            int cell = _queue[i], x = cell % _width, y = cell / _width;
+            switch (getSpecial(cell)) {
+                case Board.SPECIAL_ROW -> sweepRow(x, y);
+                case Board.SPECIAL_COLUMN -> sweepColumn(x, y);
+                case Board.SPECIAL_CROSS -> { sweepRow(x, y); sweepColumn(x, y); }
+                case Board.SPECIAL_BOMB -> {
+                    for (int by = Math.max(y - 1, 0); by <= Math.min(y + 1, _height - 1); by++)
+                        for (int bx = Math.max(x - 1, 0); bx <= Math.min(x + 1, _width - 1); bx++)
+                            addClearCell(by * _width + bx);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the cells of row of given cell to clear bits (unless row was already swept).
+     */
+    private void sweepRow(int aX, int aY)
+    {
+        if (_sweptRows[aY]) return;
+        _sweptRows[aY] = true;
+        for (int x = 0; x < _width; x++)
+            addClearCell(aY * _width + x);
+    }
+
+    /**
+     * Adds the cells of column of given cell to clear bits (unless column was already swept).
+     */
+    private void sweepColumn(int aX, int aY)
+    {
+        if (_sweptColumns[aX]) return;
+        _sweptColumns[aX] = true;
+        for (int y = 0; y < _height; y++)
+            addClearCell(y * _width + aX);
+    }
+
+    /**
+     * Adds given cell to clear bits (if not already there) and queues its special gem (if any).
+     */
+    private void addClearCell(int aCell)
+    {
+        if (Board.isBitSet(_clearBits, aCell))
+            return;
+        Board.setBit(_clearBits, aCell);
+        if (getSpecial(aCell) != Board.SPECIAL_NONE)
+            _queue[_queueLength++] = aCell;
+    }
+
+    /**
+     * Returns the special kind at given cell.
+     */
+    private int getSpecial(int aCell)  { return _board.getSpecial(aCell % _width, aCell / _width); }
+
+    /**
+     * Triggers special gems in clear bits, sets new special gems (unless cleared by chain), clears the cells in clear
+     * bits, moves gems down to fill gaps and adds new gems at top (that don't complete a run, if calm).
+     * Returns the step.
+     */
+    private CascadePlan.Step clearAndFall(boolean isCalm)
+    {
+        // Trigger special gems, then set new special gems that weren't cleared
+        triggerSpecials();
+        int specialsLength = 0;
+        for (int i = 0; i < _specialsLength; i += 2) {
+            int cell = _specials[i];
+            if (Board.isBitSet(_clearBits, cell))
+                continue;
+            _board.setSpecial(cell % _width, cell / _width, _specials[i + 1]);
+            _specials[specialsLength++] = cell;
+            _specials[specialsLength++] = _specials[i + 1];
+        }
+        int[] specials = Arrays.copyOf(_specials, specialsLength);
+
+        // Iterate over clear bits to clear cells and get lowest cleared row for each column
+        int[] clearCells = new int[Board.getBitCount(_clearBits)];
+        int clearCount = 0;
+        Arrays.fill(_colBottoms, -1);
+        for (int i = 0; i < _clearBits.length; i++) {
+            for (long word = _clearBits[i]; word != 0; word &= word - 1) {
+                int cell = i * 64 + Long.numberOfTrailingZeros(word);
+                int x = cell % _width, y = cell / _width;
+                clearCells[clearCount++] = cell;
+                _board.setGemId(x, y, Board.EMPTY);
+                _colBottoms[x] = Math.max(_colBottoms[x], y);
+            }
+        }
+
+        // Iterate over columns with cleared cells
+        _fallsLength = 0;
+        for (int x = 0; x < _width; x++) {
+            int bottomY = _colBottoms[x];
+            if (bottomY < 0)
+                continue;
+
+            // Move gems (and specials) above cleared cells down (from bottom up) to next open row
+            int dstY = bottomY;
+            for (int y = bottomY; y >= 0; y--) {
+                int gemId = _board.getGemId(x, y);
+                if (gemId == Board.EMPTY)
+                    continue;
+                if (y != dstY) {
+                    int special = _board.getSpecial(x, y);
+                    addFall(x, y, dstY, gemId, special);
+                    _board.setGemId(x, y, Board.EMPTY);
+                    _board.setGemId(x, dstY, gemId);
+                    _board.setSpecial(x, dstY, special);
+                }
+                dstY--;
+            }
+            _colBottoms[x] = dstY;
+        }
+
+        // Add new gems for open rows at top of columns (starting above board, so they fall in as a column), once all
+        // columns have fallen, so calm refill checks final neighbors
+        for (int x = 0; x < _width; x++) {
+            int emptyCount = _colBottoms[x] + 1;
+            for (int y = emptyCount - 1; y >= 0; y--) {
+                int gemId = isCalm ? getRunFreeGemId(x, y) : _board.getRandomGemId();
+                addFall(x, y - emptyCount, y, gemId, Board.SPECIAL_NONE);
+                _board.setGemId(x, y, gemId);
+            }
+        }
+
+        // Return step
+        return new CascadePlan.Step(clearCells, specials, Arrays.copyOf(_falls, _fallsLength));
+    }
+
+    /**
+     * Returns a random gem id for given cell that doesn't complete a run with filled neighbors (if color count allows).
+     */
+    private int getRunFreeGemId(int aX, int aY)
+    {
+        int colorCount = _board.getColorCount();
+        int gemId = _board.getRandomGemId();
+        for (int i = 0; i < colorCount && BoardGenerator.isRunCompletedAt(_board, aX, aY, gemId); i++)
+            gemId = (gemId + 1) % colorCount;
+        return gemId;
+    }
+
+    /**
+     * Adds a fall to falls buffer.
+     */
+    private void addFall(int aX, int fromY, int toY, int aGemId, int aSpecial)
+    {
+        if (_fallsLength + CascadePlan.Step.FALL_SIZE > _falls.length)
+            _falls = Arrays.copyOf(_falls, _falls.length * 2);
+        _falls[_fallsLength++] = aX;
+        _falls[_fallsLength++] = fromY;
+        _falls[_fallsLength++] = toY;
+        _falls[_fallsLength++] = aGemId;
+        _falls[_fallsLength++] = aSpecial;
+    }
+}
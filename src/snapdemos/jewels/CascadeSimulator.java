@@ -0,0 +1,339 @@
+package snapdemos.jewels;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A class to play many headless Jewels games (each on a seeded board, with random or greedy valid moves) through
+ * the board, cascade resolver and move index, and report swaps/sec, cascade depth (steps per move), fall rows per
+ * move (for tuning PlayView.GEM_SPEED) and the distributions of depth and clears per move as a CSV or JSON report.
+ */
+public class CascadeSimulator {
+
+    // The number of games
+    private int _gameCount = 100;
+
+    // The number of moves per game
+    private int _moveCount = 1000;
+
+    // The seed for first game (each game uses next seed)
+    private long _seed = 1;
+
+    // The board width, height and color count
+    private int _width = 8, _height = 8, _colorCount = DEFAULT_COLOR_COUNT;
+
+    // Whether to play best move (most gems matched) instead of random move
+    private boolean _greedy;
+
+    // The total number of swaps, cascade steps, cleared gems, fall rows and reshuffles
+    private long _swapCount, _stepCount, _clearCount, _fallRowCount, _reshuffleCount;
+
+    // The number of moves for each cascade depth and for each clear count (last is cell count or more)
+    private long[] _depthMoveCounts, _clearMoveCounts;
+
+    // The time to run all games in nanoseconds
+    private long _runTime;
+
+    // Constants
+    private static final int DEFAULT_COLOR_COUNT = 7;
+
+    /**
+     * Constructor.
+     */
+    public CascadeSimulator()
+    {
+        super();
+    }
+
+    /**
+     * Returns the number of games.
+     */
+    public int getGameCount()  { return _gameCount; }
+
+    /**
+     * Sets the number of games.
+     */
+    public void setGameCount(int aValue)  { _gameCount = aValue; }
+
+    /**
+     * Returns the number of moves per game.
+     */
+    public int getMoveCount()  { return _moveCount; }
+
+    /**
+     * Sets the number of moves per game.
+     */
+    public void setMoveCount(int aValue)  { _moveCount = aValue; }
+
+    /**
+     * Returns the seed for first game.
+     */
+    public long getSeed()  { return _seed; }
+
+    /**
+     * Sets the seed for first game.
+     */
+    public void setSeed(long aValue)  { _seed = aValue; }
+
+    /**
+     * Sets the board size.
+     */
+    public void setSize(int aWidth, int aHeight)
+    {
+        if (aWidth < 2 || aHeight < 2 || aWidth > Board.MAX_SIZE || aHeight > Board.MAX_SIZE)
+            throw new IllegalArgumentException("CascadeSimulator.setSize: Invalid size: " + aWidth + "x" + aHeight);
+        _width = aWidth;
+        _height = aHeight;
+    }
+
+    /**
+     * Returns the number of gem colors.
+     */
+    public int getColorCount()  { return _colorCount; }
+
+    /**
+     * Sets the number of gem colors.
+     */
+    public void setColorCount(int aValue)  { _colorCount = aValue; }
+
+    /**
+     * Returns whether to play best move instead of random move.
+     */
+    public boolean isGreedy()  { return _greedy; }
+
+    /**
+     * Sets whether to play best move instead of random move.
+     */
+    public void setGreedy(boolean aValue)  { _greedy = aValue; }
+
+    /**
+     * Plays all games and collects statistics.
+     */
+    public void run()
+    {
+        // Reset statistics
+        _swapCount = _stepCount = _clearCount = _fallRowCount = _reshuffleCount = 0;
+        _depthMoveCounts = new long[8];
+        _clearMoveCounts = new long[_width * _height + 1];
+
+        // Play games
+        long startTime = System.nanoTime();
+        for (int i = 0; i < _gameCount; i++)
+            playGame(_seed + i);
+        _runTime = System.nanoTime() - startTime;
+    }
+
+    /**
+     * Plays a single game for given seed.
+     */
+    private void playGame(long aSeed)
+    {
+        // Create board from seed, resolver and move index
+        Board board = new Board(_width, _height, _colorCount);
+        new BoardGenerator(aSeed).fill(board);
+        CascadeResolver resolver = new CascadeResolver(board);
+        MoveIndex moveIndex = new MoveIndex(board);
+        moveIndex.rebuild();
+        Random moveRandom = new Random(aSeed);
+
+        // Play moves
+        for (int i = 0; i < _moveCount; i++) {
+
+            // Get move (reshuffle if none)
+            MoveIndex.Move move = _greedy ? moveIndex.getBestMove() : moveIndex.getRandomMove(moveRandom);
+            if (move == null) {
+                moveIndex.reshuffle();
+                _reshuffleCount++;
+                if (!moveIndex.hasMove())
+                    return;
+                continue;
+            }
+
+            // Swap gems, resolve cascade and update move index
+            board.swapGems(move.x1, move.y1, move.x2, move.y2);
+            CascadePlan plan = resolver.resolveSwap(move.x1, move.y1, move.x2, move.y2);
+            moveIndex.markCellChanged(move.x1, move.y1);
+            moveIndex.markCellChanged(move.x2, move.y2);
+            moveIndex.markPlanChanged(plan);
+            moveIndex.update();
+
+            // Add move statistics
+            addMove(plan);
+
+            // If cascade stopped early with matches, reshuffle
+            if (!plan.isStable()) {
+                moveIndex.reshuffle();
+                _reshuffleCount++;
+            }
+        }
+    }
+
+    /**
+     * Adds statistics for given move cascade plan.
+     */
+    private void addMove(CascadePlan aPlan)
+    {
+        // Add totals
+        int depth = aPlan.getStepCount();
+        int clearCount = aPlan.getClearCount();
+        _swapCount++;
+        _stepCount += depth;
+        _clearCount += clearCount;
+        for (int i = 0; i < depth; i++)
+            _fallRowCount += aPlan.getStep(i).getMaxFallRows();
+
+        // Add to distributions
+        if (depth >= _depthMoveCounts.length)
+            _depthMoveCounts = Arrays.copyOf(_depthMoveCounts, depth * 2);
+        _depthMoveCounts[depth]++;
+        _clearMoveCounts[Math.min(clearCount, _clearMoveCounts.length - 1)]++;
+    }
+
+    /**
+     * Returns the number of swaps per second.
+     */
+    public double getSwapsPerSecond()  { return _runTime > 0 ? _swapCount / (_runTime / 1e9) : 0; }
+
+    /**
+     * Returns the average cascade depth (steps per move).
+     */
+    public double getMeanDepth()  { return _swapCount > 0 ? _stepCount / (double) _swapCount : 0; }
+
+    /**
+     * Returns the average number of gems cleared per move.
+     */
+    public double getMeanClearCount()  { return _swapCount > 0 ? _clearCount / (double) _swapCount : 0; }
+
+    /**
+     * Returns the average number of rows animated per move (sum of the longest fall of each step).
+     */
+    public double getMeanFallRows()  { return _swapCount > 0 ? _fallRowCount / (double) _swapCount : 0; }
+
+    /**
+     * Returns the maximum cascade depth.
+     */
+    public int getMaxDepth()  { return getMaxValue(_depthMoveCounts); }
+
+    /**
+     * Returns the number of moves for each cascade depth (up to max depth).
+     */
+    public long[] getDepthMoveCounts()  { return Arrays.copyOf(_depthMoveCounts, getMaxDepth() + 1); }
+
+    /**
+     * Returns the number of moves for each number of gems cleared (up to max clear count, capped at cell count).
+     */
+    public long[] getClearMoveCounts()  { return Arrays.copyOf(_clearMoveCounts, getMaxValue(_clearMoveCounts) + 1); }
+
+    /**
+     * Returns the distributions as CSV (with header row): one row per depth or clear count with number of moves.
+     */
+    public String getCSV()
+    {
+        StringBuilder sb = new StringBuilder("stat,value,moves\n");
+        long[] depthMoveCounts = getDepthMoveCounts();
+        for (int i = 0; i < depthMoveCounts.length; i++)
+            sb.append("depth,").append(i).append(',').append(depthMoveCounts[i]).append('\n');
+        long[] clearMoveCounts = getClearMoveCounts();
+        for (int i = 0; i < clearMoveCounts.length; i++)
+            sb.append("clears,").append(i).append(',').append(clearMoveCounts[i]).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Returns the results as JSON: an object with the settings, summary and distributions.
+     */
+    public String getJSON()
+    {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"gameCount\": ").append(_gameCount).append(",\n");
+        sb.append("  \"moveCount\": ").append(_moveCount).append(",\n");
+        sb.append("  \"seed\": ").append(_seed).append(",\n");
+        sb.append("  \"width\": ").append(_width).append(",\n");
+        sb.append("  \"height\": ").append(_height).append(",\n");
+        sb.append("  \"colorCount\": ").append(_colorCount).append(",\n");
+        sb.append("  \"greedy\": ").append(_greedy).append(",\n");
+        sb.append("  \"runTimeMillis\": ").append(_runTime / 1000000).append(",\n");
+        sb.append("  \"swaps\": ").append(_swapCount).append(",\n");
+        sb.append("  \"reshuffles\": ").append(_reshuffleCount).append(",\n");
+        sb.append("  \"swapsPerSec\": ").append(String.format(Locale.ROOT, "%.0f", getSwapsPerSecond())).append(",\n");
+        sb.append("  \"meanDepth\": ").append(String.format(Locale.ROOT, "%.3f", getMeanDepth())).append(",\n");
+        sb.append("  \"meanClears\": ").append(String.format(Locale.ROOT, "%.3f", getMeanClearCount())).append(",\n");
+        sb.append("  \"meanFallRows\": ").append(String.format(Locale.ROOT, "%.3f", getMeanFallRows())).append(",\n");
+        sb.append("  \"depthMoves\": ").append(Arrays.toString(getDepthMoveCounts())).append(",\n");
+        sb.append("  \"clearMoves\": ").append(Arrays.toString(getClearMoveCounts())).append("\n");
+        sb.append("}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Writes results to given file path (as JSON if path ends with .json, otherwise CSV).
+     */
+    public void writeReport(Path aPath) throws IOException
+    {
+        String report = aPath.toString().endsWith(".json") ? getJSON() : getCSV();
+        Files.writeString(aPath, report);
+    }
+
+    /**
+     * Returns a summary of results.
+     */
+    public String getSummary()
+    {
+        return String.format(Locale.ROOT, "Games: %d, Size: %dx%d, Colors: %d, Moves: %s, Time: %.1fs, Swaps/sec: %.0f, " +
+                "Mean Depth: %.3f, Max Depth: %d, Mean Clears: %.2f, Mean Fall Rows: %.2f, Reshuffles: %d",
+                _gameCount, _width, _height, _colorCount, _greedy ? "greedy" : "random", _runTime / 1e9,
+                getSwapsPerSecond(), getMeanDepth(), getMaxDepth(), getMeanClearCount(), getMeanFallRows(),
+                _reshuffleCount);
+    }
+
+    /**
+     * Returns the highest index with a non-zero count.
+     */
+    private static int getMaxValue(long[] theCounts)
+    {
+        for (int i = theCounts.length - 1; i > 0; i--)
+            if (theCounts[i] > 0)
+                return i;
+        return 0;
+    }
+
+    /**
+     * Runs a simulation. Options: -games N, -moves N, -seed N, -size WIDTHxHEIGHT, -colors N, -strategy random|greedy,
+     * -out report.csv|report.json
+     */
+    public static void main(String[] args) throws IOException
+    {
+        // Parse options
+        CascadeSimulator simulator = new CascadeSimulator();
+        Path outPath = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-games" -> simulator.setGameCount(Integer.parseInt(value));
+                case "-moves" -> simulator.setMoveCount(Integer.parseInt(value));
+                case "-seed" -> simulator.setSeed(Long.parseLong(value));
+                case "-size" -> {
+                    String[] sizeStrings = value.toLowerCase().split("x");
+                    simulator.setSize(Integer.parseInt(sizeStrings[0]), Integer.parseInt(sizeStrings[1]));
+                }
+                case "-colors" -> simulator.setColorCount(Integer.parseInt(value));
+                case "-strategy" -> {
+                    if (!value.equals("random") && !value.equals("greedy"))
+                        throw new IllegalArgumentException("CascadeSimulator: Unknown strategy: " + value);
+                    simulator.setGreedy(value.equals("greedy"));
+                }
+                case "-out" -> outPath = Path.of(value);
+                default -> throw new IllegalArgumentException("CascadeSimulator: Unknown option: " + args[i]);
+            }
+        }
+
+        // Run, print summary and write report
+        simulator.run();
+        System.out.println(simulator.getSummary());
+        if (outPath != null)
+            simulator.writeReport(outPath);
+    }
+}
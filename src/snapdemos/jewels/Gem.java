@@ -1,4 +1,5 @@
 package snapdemos.jewels;
+import snap.geom.Ellipse;
 import snap.gfx.*;
 import snap.view.*;
 
@@ -9,12 +10,23 @@ public class Gem extends ImageView {
 
     // The Gem id
     private int _gemId;
+
+    // The special kind (Board.SPECIAL_xxx)
+    private int _special;
     
     // The gem grid X/Y
     private int _gridX, _gridY;
+
+    // Whether gem is free in PlayView gem pool
+    private boolean _free;
+
+    // The number of times gem was taken from PlayView gem pool
+    private int _poolCount;
     
     // Constants
     static int TILE_SIZE = PlayView.TILE_SIZE;
+    private static Color SPECIAL_COLOR = new Color(1, 1, 1, .7);
+    private static Stroke BOMB_STROKE = new Stroke(4);
     
     // The gems
     static Image BLUE_GEM = Image.getImageForClassResource(Gem.class, "pkg.images/BlueGem.png");
@@ -27,12 +39,11 @@ public class Gem extends ImageView {
     static Image[] ALL_GEMS = new Image[] { BLUE_GEM, GREEN_GEM, ORANGE_GEM, PURPLE_GEM, RED_GEM, WHITE_GEM, YELLOW_GEM };
 
     /**
-     * Create new Gem.
+     * Create new Gem for given gem id.
      */
-    public Gem()
+    public Gem(int aGemId)
     {
-        _gemId = (int) Math.floor(Math.random() * 7);
-        setImage(ALL_GEMS[_gemId]);
+        setId(aGemId);
         setSize(TILE_SIZE, TILE_SIZE);
         setPrefSize(TILE_SIZE, TILE_SIZE);
     }
@@ -42,6 +53,30 @@ public class Gem extends ImageView {
      */
     public int getId()  { return _gemId; }
 
+    /**
+     * Sets the gem id (and image).
+     */
+    public void setId(int aGemId)
+    {
+        _gemId = aGemId;
+        setImage(ALL_GEMS[aGemId]);
+    }
+
+    /**
+     * Returns the special kind (Board.SPECIAL_xxx).
+     */
+    public int getSpecial()  { return _special; }
+
+    /**
+     * Sets the special kind (Board.SPECIAL_xxx).
+     */
+    public void setSpecial(int aSpecial)
+    {
+        if (aSpecial == _special) return;
+        _special = aSpecial;
+        repaint();
+    }
+
     /**
      * Returns the grid X of gem.
      */
@@ -56,4 +91,46 @@ public class Gem extends ImageView {
      * Sets the gem grid X/Y
      */
     public void setGridXY(int gridX, int gridY)  { _gridX = gridX; _gridY = gridY; }
-}
\ No newline at end of file
+
+    /**
+     * Returns whether gem is free in PlayView gem pool.
+     */
+    public boolean isFree()  { return _free; }
+
+    /**
+     * Sets whether gem is free in PlayView gem pool.
+     */
+    public void setFree(boolean aValue)  { _free = aValue; }
+
+    /**
+     * Returns the number of times gem was taken from PlayView gem pool (to detect reuse).
+     */
+    public int getPoolCount()  { return _poolCount; }
+
+    /**
+     * Sets the number of times gem was taken from PlayView gem pool.
+     */
+    public void setPoolCount(int aValue)  { _poolCount = aValue; }
+
+    /**
+     * Paint gem image, then special marker: bar across for row, bar down for column, both for cross, ring for bomb.
+     */
+    protected void paintFront(Painter aPntr)
+    {
+        super.paintFront(aPntr);
+        if (_special == Board.SPECIAL_NONE)
+            return;
+
+        // Paint marker
+        double size = getWidth(), barSize = size / 8;
+        aPntr.setColor(SPECIAL_COLOR);
+        if (_special == Board.SPECIAL_ROW || _special == Board.SPECIAL_CROSS)
+            aPntr.fillRect(0, (size - barSize) / 2, size, barSize);
+        if (_special == Board.SPECIAL_COLUMN || _special == Board.SPECIAL_CROSS)
+            aPntr.fillRect((size - barSize) / 2, 0, barSize, size);
+        if (_special == Board.SPECIAL_BOMB) {
+            aPntr.setStroke(BOMB_STROKE);
+            aPntr.draw(new Ellipse(barSize, barSize, size - barSize * 2, size - barSize * 2));
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package snapdemos.jewels;
+import snap.view.ParentView;
+import snap.view.ViewTimer;
+import snap.view.ViewUtils;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A class to animate all moving gems of a view from one timer: each gem has a start translation (moving linearly to
+ * zero) and start/end times, every tick advances all gems and repaints the union of their old and new bounds once,
+ * and completion callbacks run together in the tick where the last gem lands.
+ */
+public class GemAnimator {
+
+    // The view that holds the gems
+    private ParentView _view;
+
+    // The moving gems and count
+    private Gem[] _gems = new Gem[64];
+    private int _gemCount;
+
+    // The start translation of each gem (as pairs of trans X/Y)
+    private double[] _startTrans = new double[128];
+
+    // The start and end time of each gem (as pairs of millis since base time)
+    private int[] _times = new int[128];
+
+    // The base time for gem times
+    private long _baseTime;
+
+    // The runs to call when all gems land
+    private List<Runnable> _doneRuns = new ArrayList<>();
+
+    // The timer
+    private ViewTimer _timer = new ViewTimer(this::tick, FRAME_PERIOD);
+
+    // Constants
+    private static final int FRAME_PERIOD = 16;
+
+    /**
+     * Constructor for given view.
+     */
+    public GemAnimator(ParentView aView)
+    {
+        _view = aView;
+    }
+
+    /**
+     * Returns whether any gems are moving (or waiting to move).
+     */
+    public boolean isBusy()  { return _gemCount > 0; }
+
+    /**
+     * Moves given gem from its current translation to zero, starting after given delay and taking given time.
+     */
+    public void moveGem(Gem aGem, int aDelay, int aTravelTime)
+    {
+        // If idle, reset base time and start timer
+        if (_gemCount == 0) {
+            _baseTime = System.currentTimeMillis();
+            _timer.start();
+        }
+
+        // Get index of gem (add if not moving)
+        int index = indexOfGem(aGem);
+        if (index < 0) {
+            if (_gemCount == _gems.length) {
+                _gems = Arrays.copyOf(_gems, _gemCount * 2);
+                _startTrans = Arrays.copyOf(_startTrans, _gemCount * 4);
+                _times = Arrays.copyOf(_times, _gemCount * 4);
+            }
+            index = _gemCount++;
+            _gems[index] = aGem;
+        }
+
+        // Set start translation and times
+        int startTime = (int) (System.currentTimeMillis() - _baseTime) + aDelay;
+        _startTrans[index * 2] = aGem.getTransX();
+        _startTrans[index * 2 + 1] = aGem.getTransY();
+        _times[index * 2] = startTime;
+        _times[index * 2 + 1] = startTime + aTravelTime;
+    }
+
+    /**
+     * Stops given gem (if moving) and resets its translation.
+     */
+    public void stopGem(Gem aGem)
+    {
+        int index = indexOfGem(aGem);
+        if (index >= 0)
+            removeGem(index);
+        aGem.setTransX(0);
+        aGem.setTransY(0);
+    }
+
+    /**
+     * Runs given run when all gems land (or on next event loop if no gems are moving).
+     */
+    public void runWhenDone(Runnable aRun)
+    {
+        if (_gemCount == 0)
+            ViewUtils.runLater(aRun);
+        else _doneRuns.add(aRun);
+    }
+
+    /**
+     * Lands all gems now and calls done runs.
+     */
+    public void finish()
+    {
+        while (_gemCount > 0)
+            stopGem(_gems[_gemCount - 1]);
+        finishDone();
+    }
+
+    /**
+     * Advances all gems and repaints union of changed bounds.
+     */
+    private void tick()
+    {
+        // Iterate over gems (from end, so landed gems can be removed)
+        int time = (int) (System.currentTimeMillis() - _baseTime);
+        double x0 = Double.MAX_VALUE, y0 = Double.MAX_VALUE, x1 = -Double.MAX_VALUE, y1 = -Double.MAX_VALUE;
+        for (int i = _gemCount - 1; i >= 0; i--) {
+
+            // If gem hasn't started, skip
+            int startTime = _times[i * 2], endTime = _times[i * 2 + 1];
+            if (time < startTime)
+                continue;
+
+            // Get new translation
+            Gem gem = _gems[i];
+            double ratio = time >= endTime ? 1 : (time - startTime) / (double) (endTime - startTime);
+            double transX = _startTrans[i * 2] * (1 - ratio);
+            double transY = _startTrans[i * 2 + 1] * (1 - ratio);
+
+            // Add old and new bounds to union
+            double gemX = gem.getX(), gemY = gem.getY();
+            x0 = Math.min(x0, gemX + Math.min(gem.getTransX(), transX));
+            y0 = Math.min(y0, gemY + Math.min(gem.getTransY(), transY));
+            x1 = Math.max(x1, gemX + Math.max(gem.getTransX(), transX) + gem.getWidth());
+            y1 = Math.max(y1, gemY + Math.max(gem.getTransY(), transY) + gem.getHeight());
+
+            // Set translation and remove gem if landed
+            gem.setTransX(transX);
+            gem.setTransY(transY);
+            if (ratio >= 1)
+                removeGem(i);
+        }
+
+        // Repaint union of changed bounds
+        if (x0 < x1)
+            _view.repaint(x0, y0, x1 - x0, y1 - y0);
+
+        // If all gems landed, call done runs
+        if (_gemCount == 0)
+            finishDone();
+    }
+
+    /**
+     * Stops timer and calls done runs.
+     */
+    private void finishDone()
+    {
+        _timer.stop();
+        Runnable[] doneRuns = _doneRuns.toArray(new Runnable[0]);
+        _doneRuns.clear();
+        for (Runnable doneRun : doneRuns)
+            doneRun.run();
+    }
+
+    /**
+     * Returns the index of given gem in moving gems.
+     */
+    private int indexOfGem(Gem aGem)
+    {
+        for (int i = 0; i < _gemCount; i++)
+            if (_gems[i] == aGem)
+                return i;
+        return -1;
+    }
+
+    /**
+     * Removes the gem at given index (moving last gem to index).
+     */
+    private void removeGem(int anIndex)
+    {
+        int lastIndex = --_gemCount;
+        _gems[anIndex] = _gems[lastIndex];
+        _startTrans[anIndex * 2] = _startTrans[lastIndex * 2];
+        _startTrans[anIndex * 2 + 1] = _startTrans[lastIndex * 2 + 1];
+        _times[anIndex * 2] = _times[lastIndex * 2];
+        _times[anIndex * 2 + 1] = _times[lastIndex * 2 + 1];
+        _gems[lastIndex] = null;
+    }
+}
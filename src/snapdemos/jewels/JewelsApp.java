@@ -10,12 +10,25 @@ public class JewelsApp extends ViewController {
     // The PlayView
     private PlayView _playView;
 
+    // The grid width/height
+    private int _gridWidth, _gridHeight;
+
     /**
      * Constructor.
      */
     public JewelsApp()
+    {
+        this(PlayView.GRID_WIDTH, PlayView.GRID_HEIGHT);
+    }
+
+    /**
+     * Constructor for given grid width and height.
+     */
+    public JewelsApp(int aGridWidth, int aGridHeight)
     {
         super();
+        _gridWidth = aGridWidth;
+        _gridHeight = aGridHeight;
 
         getWindow().setMaximized(SnapEnv.isWebVM);
         setWindowVisible(true);
@@ -31,7 +44,7 @@ public class JewelsApp extends ViewController {
         RowView mainRowView = (RowView) super.createUI();
 
         // Swap out placeholder with PlayView
-        _playView = new PlayView();
+        _playView = new PlayView(_gridWidth, _gridHeight);
         ViewUtils.replaceView(mainRowView.getChild(1), _playView);
 
         // Wrap in ScaleBox and return
@@ -43,18 +56,31 @@ public class JewelsApp extends ViewController {
      */
     protected void respondUI(ViewEvent anEvent)
     {
-        // Handle PauseButton, RestartButton
+        // Handle PauseButton, HintButton, RestartButton
         if(anEvent.equals("PauseButton"))
             _playView.pauseGame();
+        if(anEvent.equals("HintButton"))
+            _playView.showHint();
         if(anEvent.equals("RestartButton"))
             _playView.startGame();
     }
 
     /**
-     * Standard main method.
+     * Standard main method. Options: -size WIDTHxHEIGHT (up to 256x256, larger than 10x10 scrolls)
      */
     public static void main(String[] args)
     {
-        ViewUtils.runLater(() -> new JewelsApp());
+        // Get grid size from args
+        int gridWidth = PlayView.GRID_WIDTH;
+        int gridHeight = PlayView.GRID_HEIGHT;
+        if (args.length >= 2 && args[0].equals("-size")) {
+            String[] sizeStrings = args[1].toLowerCase().split("x");
+            gridWidth = Integer.parseInt(sizeStrings[0]);
+            gridHeight = Integer.parseInt(sizeStrings[1]);
+        }
+
+        // Create app
+        int width = gridWidth, height = gridHeight;
+        ViewUtils.runLater(() -> new JewelsApp(width, height));
     }
 }
\ No newline at end of file
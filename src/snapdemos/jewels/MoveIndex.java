@@ -0,0 +1,333 @@
+package snapdemos.jewels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A class to keep an index of valid moves (swaps that make a match) for a board. Cells changed by a swap or cascade
+ * are marked, and update() re-evaluates only the swaps whose match window (two cells each way) touches a changed cell.
+ * Also reshuffles a board that has no moves into one that has moves and no matches.
+ */
+public class MoveIndex {
+
+    // The board
+    private Board _board;
+
+    // The board width and height
+    private int _width, _height;
+
+    // The number of horizontal swaps (x,y <-> x+1,y) and total swaps (vertical swaps x,y <-> x,y+1 follow)
+    private int _hSwapCount, _swapCount;
+
+    // The match count for each swap (zero if swap is not a valid move)
+    private int[] _matchCounts;
+
+    // The number of valid moves
+    private int _moveCount;
+
+    // The bitboard of changed cells and bitset of swaps to re-evaluate
+    private long[] _changedBits, _dirtySwapBits;
+
+    // Constants
+    private static final int MAX_SHUFFLE_ATTEMPTS = 100;
+    private static final int MAX_SHUFFLE_CANDIDATES = 32;
+
+    /**
+     * Constructor for given board.
+     */
+    public MoveIndex(Board aBoard)
+    {
+        _board = aBoard;
+        _width = aBoard.getWidth();
+        _height = aBoard.getHeight();
+        _hSwapCount = (_width - 1) * _height;
+        _swapCount = _hSwapCount + _width * (_height - 1);
+        _matchCounts = new int[_swapCount];
+        _changedBits = aBoard.newBits();
+        _dirtySwapBits = new long[(_swapCount + 63) >>> 6];
+    }
+
+    /**
+     * Returns the board.
+     */
+    public Board getBoard()  { return _board; }
+
+    /**
+     * Returns whether board has any valid move.
+     */
+    public boolean hasMove()  { return _moveCount > 0; }
+
+    /**
+     * Returns the number of valid moves.
+     */
+    public int getMoveCount()  { return _moveCount; }
+
+    /**
+     * Re-evaluates every swap.
+     */
+    public void rebuild()
+    {
+        for (int i = 0; i < _swapCount; i++)
+            updateSwap(i);
+        Arrays.fill(_changedBits, 0);
+    }
+
+    /**
+     * Marks the cell at given x/y as changed.
+     */
+    public void markCellChanged(int aX, int aY)  { Board.setBit(_changedBits, aY * _width + aX); }
+
+    /**
+     * Marks the cells cleared or filled by every step of given cascade plan as changed.
+     */
+    public void markPlanChanged(CascadePlan aPlan)
+    {
+        for (int i = 0; i < aPlan.getStepCount(); i++) {
+            CascadePlan.Step step = aPlan.getStep(i);
+            for (int j = 0; j < step.getClearCount(); j++)
+                Board.setBit(_changedBits, step.getClearCell(j));
+            for (int j = 0; j < step.getFallCount(); j++)
+                markCellChanged(step.getFallX(j), step.getFallToY(j));
+        }
+    }
+
+    /**
+     * Re-evaluates the swaps near changed cells.
+     */
+    public void update()
+    {
+        // Iterate over changed cells and mark swaps with a cell within two cells in same row or column
+        for (int i = 0; i < _changedBits.length; i++) {
+            for (long word = _changedBits[i]; word != 0; word &= word - 1) {
+                int cell = i * 64 + Long.numberOfTrailingZeros(word);
+                markSwapsNearCell(cell % _width, cell / _width);
+            }
+            _changedBits[i] = 0;
+        }
+
+        // Iterate over marked swaps and re-evaluate
+        for (int i = 0; i < _dirtySwapBits.length; i++) {
+            for (long word = _dirtySwapBits[i]; word != 0; word &= word - 1)
+                updateSwap(i * 64 + Long.numberOfTrailingZeros(word));
+            _dirtySwapBits[i] = 0;
+        }
+    }
+
+    /**
+     * Marks the swaps whose match window can include given cell: horizontal swaps from x-3 to x+2 and vertical swaps
+     * from y-3 to y+2 (in rows/columns within two of cell).
+     */
+    private void markSwapsNearCell(int aX, int aY)
+    {
+        // Mark horizontal swaps
+        for (int y = Math.max(aY - 2, 0); y <= Math.min(aY + 2, _height - 1); y++)
+            for (int x = Math.max(aX - 3, 0); x <= Math.min(aX + 2, _width - 2); x++)
+                Board.setBit(_dirtySwapBits, y * (_width - 1) + x);
+
+        // Mark vertical swaps
+        for (int y = Math.max(aY - 3, 0); y <= Math.min(aY + 2, _height - 2); y++)
+            for (int x = Math.max(aX - 2, 0); x <= Math.min(aX + 2, _width - 1); x++)
+                Board.setBit(_dirtySwapBits, _hSwapCount + y * _width + x);
+    }
+
+    /**
+     * Re-evaluates the swap at given index.
+     */
+    private void updateSwap(int anIndex)
+    {
+        // Get swap cells
+        int x1, y1, x2, y2;
+        if (anIndex < _hSwapCount) {
+            x1 = anIndex % (_width - 1);
+            y1 = anIndex / (_width - 1);
+            x2 = x1 + 1;
+            y2 = y1;
+        }
+        else {
+            x1 = (anIndex - _hSwapCount) % _width;
+            y1 = (anIndex - _hSwapCount) / _width;
+            x2 = x1;
+            y2 = y1 + 1;
+        }
+
+        // Get match count and update move count
+        int matchCount = _board.getSwapMatchCount(x1, y1, x2, y2);
+        int oldMatchCount = _matchCounts[anIndex];
+        if (matchCount > 0 && oldMatchCount == 0)
+            _moveCount++;
+        else if (matchCount == 0 && oldMatchCount > 0)
+            _moveCount--;
+        _matchCounts[anIndex] = matchCount;
+    }
+
+    /**
+     * Returns the best move (most gems matched), or null if no moves.
+     */
+    public Move getBestMove()
+    {
+        // Find first swap with highest match count
+        int bestIndex = -1;
+        for (int i = 0; i < _swapCount; i++)
+            if (_matchCounts[i] > 0 && (bestIndex < 0 || _matchCounts[i] > _matchCounts[bestIndex]))
+                bestIndex = i;
+
+        // Return move for swap (or null if none)
+        return bestIndex >= 0 ? getMoveForSwap(bestIndex) : null;
+    }
+
+    /**
+     * Returns a random valid move (every move equally likely), or null if no moves.
+     */
+    public Move getRandomMove(Random aRandom)
+    {
+        // If no moves, just return
+        if (_moveCount == 0)
+            return null;
+
+        // Find swap for random move number
+        int moveNumber = aRandom.nextInt(_moveCount);
+        for (int i = 0; i < _swapCount; i++)
+            if (_matchCounts[i] > 0 && moveNumber-- == 0)
+                return getMoveForSwap(i);
+        return null;
+    }
+
+    /**
+     * Returns up to given number of valid moves, ranked by number of gems matched.
+     */
+    public List<Move> getHints(int aMaxCount)
+    {
+        // Get valid moves
+        List<Move> moves = new ArrayList<>(_moveCount);
+        for (int i = 0; i < _swapCount; i++) {
+            if (_matchCounts[i] > 0)
+                moves.add(getMoveForSwap(i));
+        }
+
+        // Sort by match count and return up to max
+        moves.sort((move1, move2) -> Integer.compare(move2.matchCount, move1.matchCount));
+        return moves.size() > aMaxCount ? new ArrayList<>(moves.subList(0, aMaxCount)) : moves;
+    }
+
+    /**
+     * Returns the move for the swap at given index.
+     */
+    private Move getMoveForSwap(int anIndex)
+    {
+        if (anIndex < _hSwapCount)
+            return new Move(anIndex % (_width - 1), anIndex / (_width - 1), true, _matchCounts[anIndex]);
+        int index = anIndex - _hSwapCount;
+        return new Move(index % _width, index / _width, false, _matchCounts[anIndex]);
+    }
+
+    /**
+     * Reshuffles the board gems into an arrangement with no matches and at least one valid move (if possible) and
+     * rebuilds index. Gems are placed in row order, each swapped with a later gem if it would complete a run with the
+     * two gems to the left or above (and recolored if no nearby gem fits). Returns the source cell of the gem now
+     * at each cell.
+     */
+    public int[] reshuffle()
+    {
+        // Get gem ids and specials by cell
+        int cellCount = _board.getCellCount();
+        int[] gemIds = new int[cellCount];
+        int[] specials = new int[cellCount];
+        for (int i = 0; i < cellCount; i++) {
+            gemIds[i] = _board.getGemId(i % _width, i / _width);
+            specials[i] = _board.getSpecial(i % _width, i / _width);
+        }
+
+        // Try shuffles until board has move
+        Random random = _board.getRandom();
+        int[] srcCells = new int[cellCount];
+        for (int attempt = 0; attempt < MAX_SHUFFLE_ATTEMPTS; attempt++) {
+
+            // Shuffle source cells
+            for (int i = 0; i < cellCount; i++)
+                srcCells[i] = i;
+            for (int i = cellCount - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int srcCell = srcCells[i]; srcCells[i] = srcCells[j]; srcCells[j] = srcCell;
+            }
+
+            // Place gems in row order, swapping in a later gem (or recoloring) if gem would complete a run
+            for (int k = 0; k < cellCount; k++) {
+                int x = k % _width, y = k / _width;
+                int end = Math.min(k + MAX_SHUFFLE_CANDIDATES, cellCount);
+                int j = k;
+                while (j < end && isRunCompletedAt(x, y, gemIds[srcCells[j]]))
+                    j++;
+                if (j < end) {
+                    int srcCell = srcCells[k]; srcCells[k] = srcCells[j]; srcCells[j] = srcCell;
+                    _board.setGemId(x, y, gemIds[srcCells[k]]);
+                }
+                else _board.setGemId(x, y, getRunFreeGemId(x, y, random));
+                _board.setSpecial(x, y, specials[srcCells[k]]);
+            }
+
+            // Rebuild index and if board has move, just return
+            rebuild();
+            if (hasMove())
+                break;
+        }
+
+        // Return
+        return srcCells;
+    }
+
+    /**
+     * Returns whether given gem at given cell completes a run with the two cells to the left or above.
+     */
+    private boolean isRunCompletedAt(int aX, int aY, int aGemId)
+    {
+        if (aX >= 2 && _board.getGemId(aX - 1, aY) == aGemId && _board.getGemId(aX - 2, aY) == aGemId)
+            return true;
+        return aY >= 2 && _board.getGemId(aX, aY - 1) == aGemId && _board.getGemId(aX, aY - 2) == aGemId;
+    }
+
+    /**
+     * Returns a random gem id that doesn't complete a run at given cell (if color count allows).
+     */
+    private int getRunFreeGemId(int aX, int aY, Random aRandom)
+    {
+        int colorCount = _board.getColorCount();
+        int gemId = aRandom.nextInt(colorCount);
+        for (int i = 0; i < colorCount && isRunCompletedAt(aX, aY, gemId); i++)
+            gemId = (gemId + 1) % colorCount;
+        return gemId;
+    }
+
+    /**
+     * A class to represent a valid move: the swap of a cell with the cell to the right (or below).
+     */
+    public static class Move {
+
+        // The swap cells
+        public final int x1, y1, x2, y2;
+
+        // The number of gems matched
+        public final int matchCount;
+
+        /**
+         * Constructor.
+         */
+        public Move(int aX, int aY, boolean isHorizontal, int aMatchCount)
+        {
+            x1 = aX;
+            y1 = aY;
+            x2 = isHorizontal ? aX + 1 : aX;
+            y2 = isHorizontal ? aY : aY + 1;
+            matchCount = aMatchCount;
+        }
+
+        /**
+         * Standard toString implementation.
+         */
+        @Override
+        public String toString()
+        {
+            return "Move { " + x1 + "," + y1 + " <-> " + x2 + "," + y2 + ", MatchCount=" + matchCount + " }";
+        }
+    }
+}
@@ -1,32 +1,92 @@
 package snapdemos.jewels;
+import java.util.Arrays;
 import snap.geom.*;
 import snap.gfx.*;
 import snap.view.*;
 import snap.viewx.Explode;
 
 /**
- * A View to hold the play area for a match 3 game.
+ * A View to hold the play area for a match 3 game. Boards larger than the view (up to 256x256) scroll, and only
+ * cells in view are backed by gem views: cascades outside the view resolve in the board model only.
  */
 public class PlayView extends ParentView {
 
-    // The gems
-    private Gem[][] _gems = new Gem[GRID_WIDTH][GRID_HEIGHT];
+    // The grid width/height
+    private int _gridWidth, _gridHeight;
+
+    // The board model and cascade resolver
+    private Board _board;
+    private CascadeResolver _resolver;
+
+    // The index of valid moves
+    private MoveIndex _moveIndex;
+
+    // The gems (null for cells not in view)
+    private Gem[][] _gems;
+
+    // The view width/height and the grid X/Y of top left cell in view
+    private int _viewWidth, _viewHeight;
+    private int _scrollX, _scrollY;
+
+    // The accumulated scroll event amounts (to scroll by whole cells)
+    private double _scrollAmountX, _scrollAmountY;
 
     // The last gem hit by mouse press
     private Gem _pressGem;
 
-    // The grid width/height
+    // The pool of gem views (free gems are hidden children at start of array) and free count
+    private Gem[] _gemPool;
+    private int _freeGemCount;
+
+    // The animator for moving gems
+    private GemAnimator _animator;
+
+    // The cascade plan being animated (or null)
+    private CascadePlan _cascadePlan;
+
+    // Whether gems are animating a swap or cascade (input is ignored)
+    private boolean _busy;
+
+    // The seed of current board
+    private long _seed;
+
+    // The default grid width/height
     public static int GRID_WIDTH = 8;
     public static int GRID_HEIGHT = 8;
     public static int TILE_SIZE = 64;
     public static int BORDER_SIZE = 2;
     public static int GEM_SPEED = 140;
+    public static int MAX_VIEW_SIZE = 10;
+
+    // Constants for cascade step delays: explode cleared gems, then start falls
+    private static final int CLEAR_DELAY = 200;
+    private static final int FALL_DELAY = 400;
+    private static final int RESHUFFLE_DELAY = 300;
 
     /**
      * Constructor.
      */
     public PlayView()
     {
+        this(GRID_WIDTH, GRID_HEIGHT);
+    }
+
+    /**
+     * Constructor for given grid width and height.
+     */
+    public PlayView(int aGridWidth, int aGridHeight)
+    {
+        // Create board, resolver, move index and gems
+        _gridWidth = aGridWidth;
+        _gridHeight = aGridHeight;
+        _board = new Board(aGridWidth, aGridHeight, Gem.ALL_GEMS.length);
+        _resolver = new CascadeResolver(_board);
+        _moveIndex = new MoveIndex(_board);
+        _gems = new Gem[aGridWidth][aGridHeight];
+        _viewWidth = Math.min(aGridWidth, MAX_VIEW_SIZE);
+        _viewHeight = Math.min(aGridHeight, MAX_VIEW_SIZE);
+        _animator = new GemAnimator(this);
+
         // Set background texture
         Image backgroundImage = Image.getImageForClassResource(PlayView.class, "pkg.images/Cloth.jpg"); assert (backgroundImage != null);
         ImagePaint imagePaint = new ImagePaint(backgroundImage, BORDER_SIZE, BORDER_SIZE, 64, 64, false);
@@ -34,9 +94,20 @@ public class PlayView extends ParentView {
 
         // Set PlayView fill, border, PrefSize
         setBorder(Color.BLACK, 2);
-        setPrefSize(GRID_WIDTH * TILE_SIZE + BORDER_SIZE * 2, GRID_HEIGHT * TILE_SIZE + BORDER_SIZE * 2);
+        setPrefSize(_viewWidth * TILE_SIZE + BORDER_SIZE * 2, _viewHeight * TILE_SIZE + BORDER_SIZE * 2);
         setClipToBounds(true);
         addEventHandler(this::handleMouseEvent, MousePress, MouseDrag, MouseRelease);
+        addEventHandler(this::handleScrollEvent, Scroll);
+
+        // Create gem pool: Enough for every cell in view plus a full view of new gems falling in
+        _gemPool = new Gem[_viewWidth * _viewHeight * 2];
+        for (int i = 0; i < _gemPool.length; i++) {
+            Gem gem = _gemPool[i] = new Gem(0);
+            gem.setFree(true);
+            gem.setVisible(false);
+            addChild(gem);
+        }
+        _freeGemCount = _gemPool.length;
     }
 
     /**
@@ -44,9 +115,23 @@ public class PlayView extends ParentView {
      */
     public void startGame()
     {
+        startGame(System.nanoTime());
+    }
+
+    /**
+     * Starts the game with board for given seed (same seed gives same board and refill gems).
+     */
+    public void startGame(long aSeed)
+    {
+        _seed = aSeed;
         reloadGems();
     }
 
+    /**
+     * Returns the seed of current board.
+     */
+    public long getSeed()  { return _seed; }
+
     /**
      * Pauses game.
      */
@@ -54,12 +139,65 @@ public class PlayView extends ParentView {
     {
     }
 
+    /**
+     * Returns the grid width.
+     */
+    public int getGridWidth()  { return _gridWidth; }
+
+    /**
+     * Returns the grid height.
+     */
+    public int getGridHeight()  { return _gridHeight; }
+
+    /**
+     * Returns the board.
+     */
+    public Board getBoard()  { return _board; }
+
+    /**
+     * Returns the grid X of left column in view.
+     */
+    public int getScrollX()  { return _scrollX; }
+
+    /**
+     * Returns the grid Y of top row in view.
+     */
+    public int getScrollY()  { return _scrollY; }
+
+    /**
+     * Scrolls view to given grid X/Y of top left cell (ignored while gems are animating).
+     */
+    public void setScrollXY(int aX, int aY)
+    {
+        // Clamp to grid (just return if unchanged or busy)
+        int scrollX = Math.max(Math.min(aX, _gridWidth - _viewWidth), 0);
+        int scrollY = Math.max(Math.min(aY, _gridHeight - _viewHeight), 0);
+        if (scrollX == _scrollX && scrollY == _scrollY || _busy)
+            return;
+
+        // Return gems in view to pool, set scroll and add gems for cells now in view
+        releaseViewGems();
+        _scrollX = scrollX;
+        _scrollY = scrollY;
+        for (int i = _scrollX; i < _scrollX + _viewWidth; i++)
+            for (int j = _scrollY; j < _scrollY + _viewHeight; j++)
+                setGemAtGridXY(getPooledGem(_board.getGemId(i, j), _board.getSpecial(i, j)), i, j);
+    }
+
+    /**
+     * Returns whether cell at given grid X/Y is in view.
+     */
+    public boolean isCellInView(int gridX, int gridY)
+    {
+        return gridX >= _scrollX && gridX < _scrollX + _viewWidth && gridY >= _scrollY && gridY < _scrollY + _viewHeight;
+    }
+
     /**
      * Returns the gem at given grid x/y.
      */
     private Gem getGemAtGridXY(int gridX, int gridY)
     {
-        if (gridX < 0 || gridX >= GRID_WIDTH || gridY < 0 || gridY >= GRID_HEIGHT)
+        if (gridX < 0 || gridX >= _gridWidth || gridY < 0 || gridY >= _gridHeight)
             return null;
         return _gems[gridX][gridY];
     }
@@ -99,12 +237,16 @@ public class PlayView extends ParentView {
         // Set gem at grid X/Y
         setGemAtGridXY(aGem, gridX, gridY);
 
-        // If replacing with null, animate out and remove
+        // If replacing with null, explode after delay (unless gem was returned to pool or reused by then)
         if (aGem == null) {
-            Explode explode = new Explode(oldGem, 8, 8);
-            explode.setImage(oldGem.getImage());
-            explode.removeOnDone();
-            explode.playDelayed(aDelay);
+            if (aDelay > 0) {
+                int poolCount = oldGem.getPoolCount();
+                ViewUtils.runDelayed(() -> {
+                    if (!oldGem.isFree() && oldGem.getPoolCount() == poolCount)
+                        explodeGem(oldGem);
+                }, aDelay);
+            }
+            else explodeGem(oldGem);
             return;
         }
 
@@ -114,10 +256,78 @@ public class PlayView extends ParentView {
         aGem.setTransX(transX);
         aGem.setTransY(transY);
 
-        // Calculate the time to travel to new XY and animate translation back to zero
+        // Calculate the time to travel to new XY and move translation back to zero
         double dist = Math.max(Math.abs(transX), Math.abs(transY));
         int travelTime = (int) Math.round(dist * GEM_SPEED / TILE_SIZE);
-        aGem.getAnimCleared(aDelay).getAnim(aDelay + travelTime).setTransX(0).setTransY(0).setLinear().play();
+        _animator.moveGem(aGem, aDelay, travelTime);
+    }
+
+    /**
+     * Explodes given gem (explosion plays from gem image) and returns it to pool.
+     */
+    private void explodeGem(Gem aGem)
+    {
+        Explode explode = new Explode(aGem, 8, 8);
+        explode.setImage(aGem.getImage());
+        explode.play();
+        releaseGem(aGem);
+    }
+
+    /**
+     * Returns a gem from pool for given gem id and special, reset and shown.
+     */
+    private Gem getPooledGem(int aGemId, int aSpecial)
+    {
+        // Get free gem (pool covers view plus full refill, so it should never run out - but grow if needed)
+        Gem gem;
+        if (_freeGemCount > 0)
+            gem = _gemPool[--_freeGemCount];
+        else {
+            gem = new Gem(aGemId);
+            addChild(gem);
+            _gemPool = Arrays.copyOf(_gemPool, _gemPool.length + 1);
+        }
+
+        // Reset and return
+        gem.setId(aGemId);
+        gem.setSpecial(aSpecial);
+        gem.setTransX(0);
+        gem.setTransY(0);
+        gem.setVisible(true);
+        gem.setFree(false);
+        gem.setPoolCount(gem.getPoolCount() + 1);
+        return gem;
+    }
+
+    /**
+     * Returns given gem to pool (hidden, with animation stopped).
+     */
+    private void releaseGem(Gem aGem)
+    {
+        // If already free, just return
+        if (aGem.isFree())
+            return;
+
+        // Stop animation, hide and add to free gems
+        aGem.setFree(true);
+        _animator.stopGem(aGem);
+        aGem.getAnimCleared(0);
+        aGem.setVisible(false);
+        _gemPool[_freeGemCount++] = aGem;
+    }
+
+    /**
+     * Returns the gems in view to pool.
+     */
+    private void releaseViewGems()
+    {
+        for (int i = _scrollX; i < _scrollX + _viewWidth; i++) {
+            for (int j = _scrollY; j < _scrollY + _viewHeight; j++) {
+                if (_gems[i][j] != null)
+                    releaseGem(_gems[i][j]);
+                _gems[i][j] = null;
+            }
+        }
     }
 
     /**
@@ -135,80 +345,249 @@ public class PlayView extends ParentView {
      */
     public Point gridToLocal(int aX, int aY)
     {
-        int localX = aX * TILE_SIZE + BORDER_SIZE;
-        int localY = aY * TILE_SIZE + BORDER_SIZE;
+        int localX = (aX - _scrollX) * TILE_SIZE + BORDER_SIZE;
+        int localY = (aY - _scrollY) * TILE_SIZE + BORDER_SIZE;
         return new Point(localX, localY);
     }
 
     /**
      * Return the grid X value for given view X.
      */
-    public int localToGridX(double aX)  { return (int) Math.floor((aX - BORDER_SIZE) / TILE_SIZE); }
+    public int localToGridX(double aX)  { return (int) Math.floor((aX - BORDER_SIZE) / TILE_SIZE) + _scrollX; }
 
     /**
      * Return the grid Y value for given view Y.
      */
-    public int localToGridY(double aY)  { return (int) Math.floor((aY - BORDER_SIZE) / TILE_SIZE); }
+    public int localToGridY(double aY)  { return (int) Math.floor((aY - BORDER_SIZE) / TILE_SIZE) + _scrollY; }
 
     /**
      * Reloads the gems.
      */
     private void reloadGems()
     {
-        // Remove gem views, null out grid gems (to suppress explosion) and clearGems (to reload)
-        removeChildren();
-        for (int i = 0; i < GRID_WIDTH; i++)
-            for (int j = 0; j < GRID_HEIGHT; j++)
-                _gems[i][j] = null;
-        clearGems(0, 0, GRID_WIDTH - 1, GRID_HEIGHT - 1);
+        // Return gem views to pool, land other moving gems (so pending steps release them and stop) and generate
+        // board with no matches and a valid move
+        _cascadePlan = null;
+        releaseViewGems();
+        _animator.finish();
+        new BoardGenerator(_seed).fill(_board);
+        _moveIndex.rebuild();
+
+        // Add gem views for cells in view above view and drop them in
+        for (int i = _scrollX; i < _scrollX + _viewWidth; i++) {
+            for (int j = _scrollY; j < _scrollY + _viewHeight; j++) {
+                Gem gem = getPooledGem(_board.getGemId(i, j), Board.SPECIAL_NONE);
+                Point gemXY = gridToLocal(i, j - _viewHeight);
+                gem.setXY(gemXY.x, gemXY.y);
+                setGemAtGridXYAnimated(gem, i, j, 0);
+            }
+        }
 
-        // Clear unintended matches
-        checkAndClearAllMatchesLater(GEM_SPEED * (GRID_HEIGHT + 2));
+        // Ignore input until gems land
+        _busy = true;
+        _animator.runWhenDone(() -> _busy = false);
     }
 
     /**
-     * Clears the gems in rect from given col/row to second col/row.
+     * Plays the steps of given cascade plan after given delay.
      */
-    private void clearGems(int aCol0, int aRow0, int aCol1, int aRow1)
+    private void playCascadePlan(CascadePlan aPlan, int aDelay)
     {
-        // Iterate over columns
-        for (int i = aCol0; i <= aCol1; i++) {
+        _cascadePlan = aPlan;
+        _busy = true;
+        ViewUtils.runDelayed(() -> playCascadeStep(aPlan, 0), aDelay);
+    }
+
+    /**
+     * Plays the cascade plan step at given index: explodes cleared gems, then drops moved and new gems into place
+     * and plays next step when last gem lands. Only cells in view are animated (steps outside view are skipped).
+     */
+    private void playCascadeStep(CascadePlan aPlan, int anIndex)
+    {
+        // If plan was replaced (game restarted), just return
+        if (aPlan != _cascadePlan)
+            return;
+
+        // Skip steps with no cells in view (already resolved in board)
+        int stepIndex = anIndex;
+        while (stepIndex < aPlan.getStepCount() && !isStepInView(aPlan.getStep(stepIndex)))
+            stepIndex++;
+
+        // If no more steps, clear plan, reshuffle if plan stopped early with matches or no moves left and return
+        if (stepIndex >= aPlan.getStepCount()) {
+            _cascadePlan = null;
+            _busy = false;
+            if (!aPlan.isStable() || !_moveIndex.hasMove())
+                reshuffleGems();
+            return;
+        }
+
+        // Clear gems in view
+        CascadePlan.Step step = aPlan.getStep(stepIndex);
+        int clearDelay = ViewUtils.isAltDown() ? 0 : CLEAR_DELAY;
+        for (int i = 0; i < step.getClearCount(); i++) {
+            int cell = step.getClearCell(i);
+            int gridX = cell % _gridWidth, gridY = cell / _gridWidth;
+            if (isCellInView(gridX, gridY))
+                setGemAtGridXYAnimated(null, gridX, gridY, clearDelay);
+        }
+
+        // Turn matched gems in view into new special gems (with a pulse)
+        for (int i = 0; i < step.getSpecialCount(); i++) {
+            int cell = step.getSpecialCell(i);
+            Gem gem = getGemAtGridXY(cell % _gridWidth, cell / _gridWidth);
+            if (gem != null) {
+                gem.setSpecial(step.getSpecialKind(i));
+                gem.getAnimCleared(clearDelay).setScale(1.2).getAnim(clearDelay * 2).setScale(1).play();
+            }
+        }
 
-            // Iterate over column rows and clear gems
-            for (int j = aRow0; j <= aRow1; j++) {
-                setGemAtGridXYAnimated(null, i, j, ViewUtils.isAltDown() ? 0 : 200);
+        // Get fall gems for falls from or to cells in view (get from pool and position if falling into view)
+        int fallCount = step.getFallCount();
+        Gem[] fallGems = new Gem[fallCount];
+        for (int i = 0; i < fallCount; i++) {
+            int gridX = step.getFallX(i);
+            int fromY = step.getFallFromY(i);
+            int toY = step.getFallToY(i);
+            Gem gem = isCellInView(gridX, fromY) ? getGemAtGridXY(gridX, fromY) : null;
+            if (gem == null && isCellInView(gridX, toY)) {
+                gem = getPooledGem(step.getFallGemId(i), step.getFallSpecial(i));
+                Point gemXY = gridToLocal(gridX, fromY);
+                gem.setXY(gemXY.x, gemXY.y);
             }
+            fallGems[i] = gem;
+        }
 
-            // Copy gems for column from source row
-            int srcRow = -(aRow1 - aRow0 + 1);
-            int len = aRow1 + 1;
-            copyColumnGems(i, srcRow, 0, len);
+        // Drop gems into place
+        int fallDelay = ViewUtils.isAltDown() ? 0 : FALL_DELAY;
+        for (int i = 0; i < fallCount; i++) {
+            if (fallGems[i] != null)
+                setGemAtGridXYAnimated(fallGems[i], step.getFallX(i), step.getFallToY(i), fallDelay);
         }
+
+        // When last gem lands, return gems that fell out of view to pool and play next step
+        int nextIndex = stepIndex + 1;
+        Runnable stepDone = () -> {
+            releaseFallGemsOutOfView(step, fallGems);
+            playCascadeStep(aPlan, nextIndex);
+        };
+        if (_animator.isBusy())
+            _animator.runWhenDone(stepDone);
+        else ViewUtils.runDelayed(stepDone, fallDelay);
     }
 
     /**
-     * Copies the gems in rect from given col/row to second col/row.
+     * Returns given cascade step fall gems that fell to cells out of view to pool.
      */
-    private void copyColumnGems(int aCol, int srcRow, int dstRow, int aLen)
+    private void releaseFallGemsOutOfView(CascadePlan.Step aStep, Gem[] fallGems)
     {
-        Gem[] columnGems = new Gem[aLen];
-
-        // Get source gems (create/position/add if above bounds)
-        for (int i = 0; i < aLen; i++) {
-            Gem gem = getGemAtGridXY(aCol, srcRow + i);
-            if (gem == null) {
-                gem = new Gem();
-                Point gemXY = gridToLocal(aCol, srcRow + i);
-                gem.setXY(gemXY.x, gemXY.y);
-                addChild(gem);
+        for (int i = 0; i < fallGems.length; i++) {
+            Gem gem = fallGems[i];
+            int gridX = aStep.getFallX(i), toY = aStep.getFallToY(i);
+            if (gem == null || isCellInView(gridX, toY))
+                continue;
+            if (_gems[gridX][toY] == gem)
+                _gems[gridX][toY] = null;
+            releaseGem(gem);
+        }
+    }
+
+    /**
+     * Returns whether given cascade step clears, changes or moves any cell in view.
+     */
+    private boolean isStepInView(CascadePlan.Step aStep)
+    {
+        for (int i = 0; i < aStep.getClearCount(); i++) {
+            int cell = aStep.getClearCell(i);
+            if (isCellInView(cell % _gridWidth, cell / _gridWidth))
+                return true;
+        }
+        for (int i = 0; i < aStep.getSpecialCount(); i++) {
+            int cell = aStep.getSpecialCell(i);
+            if (isCellInView(cell % _gridWidth, cell / _gridWidth))
+                return true;
+        }
+        for (int i = 0; i < aStep.getFallCount(); i++) {
+            int gridX = aStep.getFallX(i);
+            if (isCellInView(gridX, aStep.getFallFromY(i)) || isCellInView(gridX, aStep.getFallToY(i)))
+                return true;
+        }
+        return false;
+    }
+
+    /**
+     * Reshuffles the gems (board has no moves) and animates gems in view to new cells. Gems moving out of view are
+     * returned to pool and gems moving into view drop in from above view.
+     */
+    private void reshuffleGems()
+    {
+        // Reshuffle board and get new cell for each old cell
+        int[] srcCells = _moveIndex.reshuffle();
+        int[] dstCells = new int[srcCells.length];
+        for (int i = 0; i < srcCells.length; i++)
+            dstCells[srcCells[i]] = i;
+
+        // Get gems in view and clear cells
+        Gem[] viewGems = new Gem[_viewWidth * _viewHeight];
+        for (int i = 0; i < viewGems.length; i++) {
+            int gridX = _scrollX + i % _viewWidth, gridY = _scrollY + i / _viewWidth;
+            viewGems[i] = _gems[gridX][gridY];
+            _gems[gridX][gridY] = null;
+        }
+
+        // Move gems in view to new cells (updating gem id if recolored)
+        for (int i = 0; i < viewGems.length; i++) {
+            int srcX = _scrollX + i % _viewWidth, srcY = _scrollY + i / _viewWidth;
+            int dstCell = dstCells[srcY * _gridWidth + srcX];
+            int dstX = dstCell % _gridWidth, dstY = dstCell / _gridWidth;
+            Gem gem = viewGems[i];
+            if (gem == null)
+                continue;
+            if (!isCellInView(dstX, dstY)) {
+                releaseGem(gem);
+                continue;
             }
-            columnGems[i] = gem;
+            gem.setId(_board.getGemId(dstX, dstY));
+            gem.setSpecial(_board.getSpecial(dstX, dstY));
+            setGemAtGridXYAnimated(gem, dstX, dstY, RESHUFFLE_DELAY);
         }
 
-        // Set gems
-        for (int i = 0; i < aLen; i++) {
-            setGemAtGridXYAnimated(columnGems[i], aCol, dstRow + i, ViewUtils.isAltDown() ? 0 : 400);
+        // Add gems for cells in view with gem from out of view (dropping in from above view)
+        for (int i = 0; i < viewGems.length; i++) {
+            int gridX = _scrollX + i % _viewWidth, gridY = _scrollY + i / _viewWidth;
+            int srcCell = srcCells[gridY * _gridWidth + gridX];
+            if (isCellInView(srcCell % _gridWidth, srcCell / _gridWidth))
+                continue;
+            Gem gem = getPooledGem(_board.getGemId(gridX, gridY), _board.getSpecial(gridX, gridY));
+            Point gemXY = gridToLocal(gridX, gridY - _viewHeight);
+            gem.setXY(gemXY.x, gemXY.y);
+            setGemAtGridXYAnimated(gem, gridX, gridY, RESHUFFLE_DELAY);
         }
+
+        // Ignore input until gems land
+        _busy = true;
+        _animator.runWhenDone(() -> _busy = false);
+    }
+
+    /**
+     * Shows a hint by pulsing the gems of the best move.
+     */
+    public void showHint()
+    {
+        // Get best move (just return if busy or none)
+        MoveIndex.Move move = !_busy ? _moveIndex.getBestMove() : null;
+        if (move == null)
+            return;
+
+        // If move isn't in view, scroll to center it
+        if (!isCellInView(move.x1, move.y1) || !isCellInView(move.x2, move.y2))
+            setScrollXY(move.x1 - _viewWidth / 2, move.y1 - _viewHeight / 2);
+
+        // Pulse move gems
+        Gem gem1 = getGemAtGridXY(move.x1, move.y1);
+        Gem gem2 = getGemAtGridXY(move.x2, move.y2);
+        for (Gem gem : new Gem[] { gem1, gem2 })
+            gem.getAnimCleared(300).setScale(1.2).getAnim(600).setScale(1).play();
     }
 
     /**
@@ -216,6 +595,12 @@ public class PlayView extends ParentView {
      */
     private void handleMouseEvent(ViewEvent anEvent)
     {
+        // If gems are animating, just return
+        if (_busy) {
+            _pressGem = null;
+            return;
+        }
+
         // Handle MouseDown
         if (anEvent.isMousePress())
             _pressGem = getGemAtXY(anEvent.getX(), anEvent.getY());
@@ -244,6 +629,23 @@ public class PlayView extends ParentView {
         }
     }
 
+    /**
+     * Handle scroll events: Scrolls view by whole cells.
+     */
+    private void handleScrollEvent(ViewEvent anEvent)
+    {
+        // Accumulate scroll amounts and scroll by whole cells
+        _scrollAmountX += anEvent.getScrollX();
+        _scrollAmountY += anEvent.getScrollY();
+        int dx = (int) _scrollAmountX;
+        int dy = (int) _scrollAmountY;
+        _scrollAmountX -= dx;
+        _scrollAmountY -= dy;
+        if (dx != 0 || dy != 0)
+            setScrollXY(_scrollX + dx, _scrollY + dy);
+        anEvent.consume();
+    }
+
     /**
      * Testing method - just explodes selected gem range on MouseRelease.
      */
@@ -259,7 +661,11 @@ public class PlayView extends ParentView {
             int gridY0 = Math.min(pressGridY, mouseGridY);
             int gridX1 = Math.max(pressGridX, mouseGridX);
             int gridY1 = Math.max(pressGridY, mouseGridY);
-            clearGems(gridX0, gridY0, gridX1, gridY1);
+            long[] clearBits = _board.getBitsForRect(gridX0, gridY0, gridX1, gridY1);
+            CascadePlan cascadePlan = _resolver.resolveClear(clearBits);
+            _moveIndex.markPlanChanged(cascadePlan);
+            _moveIndex.update();
+            playCascadePlan(cascadePlan, 0);
         }
     }
 
@@ -276,9 +682,11 @@ public class PlayView extends ParentView {
         setGemAtGridXYAnimated(aGem1, col2, row2, isSwapBack ? 100 : 0);
         setGemAtGridXYAnimated(aGem2, col1, row1, isSwapBack ? 100 : 0);
 
-        // If original swap, register for swap done
+        // Ignore input until gems land: if original swap, register for swap done, otherwise just clear busy
+        _busy = true;
         if (!isSwapBack)
-            aGem2.getAnim(0).setOnFinish(() -> swapAnimDone(aGem1, aGem2));
+            _animator.runWhenDone(() -> swapAnimDone(aGem1, aGem2));
+        else _animator.runWhenDone(() -> _busy = false);
     }
 
     /**
@@ -286,124 +694,31 @@ public class PlayView extends ParentView {
      */
     private void swapAnimDone(Gem aGem1, Gem aGem2)
     {
-        Match match1 = getMatchForGemAtGridXY(aGem1.getGridX(), aGem1.getGridY());
-        Match match2 = getMatchForGemAtGridXY(aGem2.getGridX(), aGem2.getGridY());
-        if (match1 == null && match2 == null) {
-            ViewUtils.runLater(() -> swapGems(aGem1, aGem2, true));
+        // If gems were replaced (game restarted), just return
+        int col1 = aGem1.getGridX();
+        int row1 = aGem1.getGridY();
+        int col2 = aGem2.getGridX();
+        int row2 = aGem2.getGridY();
+        if (getGemAtGridXY(col1, row1) != aGem1 || getGemAtGridXY(col2, row2) != aGem2)
             return;
-        }
-
-        // Clear matches
-        if (match1 != null)
-            clearMatch(match1);
-        if (match2 != null)
-            clearMatch(match2);
-
-        // Check and clear all matches
-        checkAndClearAllMatchesLater(300);
-    }
 
-    /**
-     * Checks for matches on all gems and clears them.
-     */
-    private void checkAndClearAllMatchesLater(int aDelay)
-    {
-        ViewUtils.runDelayed(() -> checkAndClearMatches(), aDelay);
-    }
+        // Swap gems in board and resolve cascade
+        _board.swapGems(col1, row1, col2, row2);
+        CascadePlan cascadePlan = _resolver.resolveSwap(col1, row1, col2, row2);
 
-    /**
-     * Checks for matches on all gems and clears them.
-     */
-    private void checkAndClearMatches()
-    {
-        // Iterate over grid and check/clear any matches at each point
-        for (int i = 0; i < GRID_WIDTH; i++) {
-            for (int j = 0; j < GRID_HEIGHT; j++) {
-                boolean found = checkAndClearMatchAtGridXY(i, j);
-                if (found) {
-                    checkAndClearAllMatchesLater(300);
-                    return;
-                }
-            }
+        // If no matches, swap back (still busy until swap back lands)
+        if (cascadePlan.isEmpty()) {
+            _board.swapGems(col1, row1, col2, row2);
+            ViewUtils.runLater(() -> swapGems(aGem1, aGem2, true));
+            return;
         }
-    }
 
-    /**
-     * Checks for matches on gem at given grid X/Y and clears them.
-     */
-    private boolean checkAndClearMatchAtGridXY(int gridX, int gridY)
-    {
-        // Get match at col/row (just return if null)
-        Match match = getMatchForGemAtGridXY(gridX, gridY);
-        if (match == null)
-            return false;
-        clearMatch(match);
-        return true;
-    }
-
-    /**
-     * Clear gems for match.
-     */
-    private void clearMatch(Match aMatch)
-    {
-        if (aMatch.width() >= 2)
-            clearGems(aMatch.gridStartX, aMatch.gridY, aMatch.gridEndX, aMatch.gridY);
-        if (aMatch.height() >= 2)
-            clearGems(aMatch.gridX, aMatch.gridStartY, aMatch.gridX, aMatch.gridEndY);
-    }
-
-    /**
-     * Returns any match found for gem at given grid X/Y.
-     */
-    public Match getMatchForGemAtGridXY(int aCol, int aRow)
-    {
-        // Get gem at col/row and gem info (just return if null)
-        Gem gem = getGemAtGridXY(aCol, aRow);
-        if (gem == null)
-            return null;
-        int gemId = gem.getId();
-        int col0 = aCol;
-        int row0 = aRow;
-        int col1 = aCol;
-        int row1 = aRow;
-
-        // Iterate left/right and up/down to find matching gem extents
-        for (int i = aCol - 1; i >= 0; i--)
-            if (getGemId(i, aRow) == gemId)
-                col0--;
-            else break;
-        for (int i = aCol + 1; i < GRID_WIDTH; i++)
-            if (getGemId(i, aRow) == gemId)
-                col1++;
-            else break;
-        for (int i = aRow - 1; i >= 0; i--)
-            if (getGemId(aCol, i) == gemId)
-                row0--;
-            else break;
-        for (int i = aRow + 1; i < GRID_HEIGHT; i++)
-            if (getGemId(aCol, i) == gemId)
-                row1++;
-            else break;
-
-        // If extends exceed 2 in either direction, return match
-        int dx = col1 - col0;
-        if (dx < 2)
-            col0 = col1 = aCol;
-        int dy = row1 - row0;
-        if (dy < 2)
-            row0 = row1 = aRow;
-        if (dx < 2 && dy < 2)
-            return null;
-        return new Match(aCol, aRow, col0, row0, col1, row1);
-    }
-
-    /**
-     * Returns whether gem at col/row matches id.
-     */
-    private int getGemId(int aCol, int aRow)
-    {
-        Gem gem = getGemAtGridXY(aCol, aRow);
-        return gem != null ? gem.getId() : -1;
+        // Update move index for swapped cells and cascade cells, and play cascade
+        _moveIndex.markCellChanged(col1, row1);
+        _moveIndex.markCellChanged(col2, row2);
+        _moveIndex.markPlanChanged(cascadePlan);
+        _moveIndex.update();
+        playCascadePlan(cascadePlan, 0);
     }
 
     /**
@@ -415,32 +730,4 @@ public class PlayView extends ParentView {
         Point pnt1 = anEvent.getPoint();
         return new Size(pnt1.x - pnt0.x, pnt1.y - pnt0.y);
     }
-
-    /**
-     * A class to represent a match.
-     */
-    private static class Match {
-
-        // The match grid X/Y
-        int gridX, gridY;
-
-        // The match extents
-        int gridStartX, gridStartY, gridEndX, gridEndY;
-
-        /**
-         * Creates a Match for given col/row and extents.
-         */
-        public Match(int aGridX, int aGridY, int aGridStartX, int aGridStartY, int aGridEndX, int aGridEndY)
-        {
-            gridX = aGridX;
-            gridY = aGridY;
-            gridStartX = aGridStartX;
-            gridStartY = aGridStartY;
-            gridEndX = aGridEndX;
-            gridEndY = aGridEndY;
-        }
-
-        int width() { return gridEndX - gridStartX; }
-        int height() { return gridEndY - gridStartY; }
-    }
-}
\ No newline at end of file
+}
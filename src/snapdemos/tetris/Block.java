@@ -44,39 +44,18 @@ public class Block extends View {
     }
 
     /**
-     * Move Left.
+     * Returns the pattern.
      */
-    public void moveLeft()
-    {
-        if(getX() <= 0)
-            return;
-
-        setX(getX() - TILE_SIZE);
-
-        setTransX(TILE_SIZE);
-        getAnimCleared(300).setTransX(0).play();
-    }
-
-    /**
-     * Move Right.
-     */
-    public void moveRight()
-    {
-        if(getMaxX() >= getParent().getWidth())
-            return;
-
-        setX(getX() + TILE_SIZE);
-        setTransX(-TILE_SIZE);
-        getAnimCleared(300).setTransX(0).play();
-    }
+    public Pattern getPattern()  { return _pattern; }
 
     /**
-     * Rotate right.
+     * Sets the pattern.
      */
-    public void rotateRight()
+    public void setPattern(Pattern aPattern)
     {
-        _pattern = _pattern.getRotateRight();
+        _pattern = aPattern;
         setSizeFromPattern();
+        repaint();
     }
 
     /**
@@ -102,14 +81,4 @@ public class Block extends View {
      * Returns a copy of this block.
      */
     public Block getCopy()  { return new Block(_pattern); }
-
-    /**
-     * Returns a block with random pattern.
-     */
-    public static Block getRandomBlock()
-    {
-        int randomIndex = (int) Math.floor(Math.random() * Pattern.ALL_PATTERNS.length);
-        Pattern randomPattern = Pattern.ALL_PATTERNS[randomIndex];
-        return new Block(randomPattern);
-    }
 }
\ No newline at end of file
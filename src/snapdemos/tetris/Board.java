@@ -0,0 +1,305 @@
+package snapdemos.tetris;
+import java.util.Arrays;
+
+/**
+ * A UI-free class to represent the grid of settled tiles. Each row is stored as an int bitmask (bit N is set if
+ * column N is filled), so collision, landing and full row checks are just a few AND/OR operations.
+ */
+public class Board {
+
+    // The number of columns and rows
+    private int _colCount, _rowCount;
+
+    // The array of row bitmasks, from top row to bottom row
+    private int[] _rowBits;
+
+    // The array of tile patterns for each row and column (used for painting, null for search boards)
+    private Pattern[][] _tiles;
+
+    // The array of column heights (the number of rows from bottom to top filled tile in each column)
+    private int[] _colHeights;
+
+    // The bitmask of a full row
+    private int _fullRowBits;
+
+    // The Zobrist hash of filled tiles and the hash for each row (XOR of tile keys)
+    private long _hash;
+    private long[] _rowHashes;
+
+    // The Zobrist keys for each row and column (indexed by row * 32 + column)
+    private long[] _zobristKeys;
+
+    // The shared Zobrist keys
+    private static long[] _sharedZobristKeys = new long[0];
+
+    /**
+     * Constructor for given column and row count.
+     */
+    public Board(int aColCount, int aRowCount)
+    {
+        this(aColCount, aRowCount, true);
+    }
+
+    /**
+     * Constructor for given column and row count and whether board tracks tile patterns (search boards don't).
+     */
+    public Board(int aColCount, int aRowCount, boolean hasTiles)
+    {
+        if (aColCount > 31)
+            throw new IllegalArgumentException("Board: Column count can't exceed 31: " + aColCount);
+        _colCount = aColCount;
+        _rowCount = aRowCount;
+        _rowBits = new int[aRowCount];
+        _tiles = hasTiles ? new Pattern[aRowCount][aColCount] : null;
+        _colHeights = new int[aColCount];
+        _fullRowBits = (1 << aColCount) - 1;
+        _rowHashes = new long[aRowCount];
+        _zobristKeys = getZobristKeys(aRowCount);
+    }
+
+    /**
+     * Returns the number of columns.
+     */
+    public int getColCount()  { return _colCount; }
+
+    /**
+     * Returns the number of rows.
+     */
+    public int getRowCount()  { return _rowCount; }
+
+    /**
+     * Returns the bitmask of filled columns for given row.
+     */
+    public int getRowBits(int aRow)  { return _rowBits[aRow]; }
+
+    /**
+     * Returns whether tile at given column and row is filled.
+     */
+    public boolean isTileFilled(int aCol, int aRow)  { return (_rowBits[aRow] & (1 << aCol)) != 0; }
+
+    /**
+     * Returns the pattern of the tile at given column and row (or null if empty).
+     */
+    public Pattern getTilePattern(int aCol, int aRow)  { return _tiles != null ? _tiles[aRow][aCol] : null; }
+
+    /**
+     * Returns the height of given column: the number of rows from bottom to top filled tile.
+     */
+    public int getColHeight(int aCol)  { return _colHeights[aCol]; }
+
+    /**
+     * Returns the Zobrist hash of filled tiles (the same for boards with the same filled tiles).
+     */
+    public long getHash()  { return _hash; }
+
+    /**
+     * Returns whether given row is full.
+     */
+    public boolean isRowFull(int aRow)  { return _rowBits[aRow] == _fullRowBits; }
+
+    /**
+     * Returns whether given pattern at given column and row is outside the board or hits a filled tile.
+     * Rows above the board (negative) are considered open.
+     */
+    public boolean isObstructed(Pattern aPattern, int aCol, int aRow)
+    {
+        // If outside left, right or bottom, return true
+        if (aCol < 0 || aCol + aPattern.colCount > _colCount || aRow + aPattern.rowCount > _rowCount)
+            return true;
+
+        // Iterate over pattern rows and return true if any hit board row
+        int[] patternRowBits = aPattern.rowBits;
+        for (int i = Math.max(-aRow, 0); i < patternRowBits.length; i++) {
+            if ((_rowBits[aRow + i] & (patternRowBits[i] << aCol)) != 0)
+                return true;
+        }
+
+        // Return not obstructed
+        return false;
+    }
+
+    /**
+     * Adds the tiles of given pattern at given column and row.
+     */
+    public void addPattern(Pattern aPattern, int aCol, int aRow)
+    {
+        int[] fill = aPattern.fill;
+        for (int i = 0; i < fill.length; i += 2) {
+            int col = aCol + fill[i];
+            int row = aRow + fill[i + 1];
+            if (row < 0)
+                continue;
+            _rowBits[row] |= 1 << col;
+            if (_tiles != null)
+                _tiles[row][col] = aPattern;
+            _colHeights[col] = Math.max(_colHeights[col], _rowCount - row);
+            long key = _zobristKeys[row * 32 + col];
+            _rowHashes[row] ^= key;
+            _hash ^= key;
+        }
+    }
+
+    /**
+     * Removes all full rows in a single compaction pass, moving the rows above down. The indexes of removed rows
+     * (prior to removal and from bottom to top) are written to given array and the number of removed rows is returned.
+     */
+    public int removeFullRows(int[] removedRows)
+    {
+        // Iterate over rows from bottom up and copy each row that isn't full down to next open row
+        int removedCount = 0;
+        int dstRow = _rowCount - 1;
+        for (int row = _rowCount - 1; row >= 0; row--) {
+
+            // If row is full, add to removed rows, remove from hash and skip
+            int rowBits = _rowBits[row];
+            if (rowBits == _fullRowBits) {
+                removedRows[removedCount++] = row;
+                _hash ^= _rowHashes[row];
+                continue;
+            }
+
+            // Copy row down (and update hash for row moving from row to dst row)
+            if (dstRow != row) {
+                _rowBits[dstRow] = rowBits;
+                if (_tiles != null)
+                    System.arraycopy(_tiles[row], 0, _tiles[dstRow], 0, _colCount);
+                long rowHash = getRowHash(dstRow, rowBits);
+                _hash ^= _rowHashes[row] ^ rowHash;
+                _rowHashes[dstRow] = rowHash;
+            }
+            dstRow--;
+        }
+
+        // If no rows removed, just return
+        if (removedCount == 0)
+            return 0;
+
+        // Clear vacated rows at top
+        for (int row = dstRow; row >= 0; row--) {
+            if (_rowBits[row] == 0)
+                continue;
+            _rowBits[row] = 0;
+            _rowHashes[row] = 0;
+            if (_tiles != null)
+                Arrays.fill(_tiles[row], null);
+        }
+
+        // Update column heights: Each column lost a tile in every removed (full) row, so top tile is now at least
+        // removed count lower (scan down from there in case top tile was in a removed row)
+        for (int col = 0; col < _colCount; col++) {
+            int colBit = 1 << col;
+            int row = _rowCount - _colHeights[col] + removedCount;
+            while (row < _rowCount && (_rowBits[row] & colBit) == 0)
+                row++;
+            _colHeights[col] = _rowCount - row;
+        }
+
+        // Return
+        return removedCount;
+    }
+
+    /**
+     * Clears the board.
+     */
+    public void clear()
+    {
+        Arrays.fill(_rowBits, 0);
+        Arrays.fill(_colHeights, 0);
+        Arrays.fill(_rowHashes, 0);
+        _hash = 0;
+        if (_tiles != null) {
+            for (Pattern[] rowTiles : _tiles)
+                Arrays.fill(rowTiles, null);
+        }
+    }
+
+    /**
+     * Copies the contents of given board (which must have the same size).
+     */
+    public void copyFrom(Board aBoard)
+    {
+        // Copy row bits, column heights and hashes
+        System.arraycopy(aBoard._rowBits, 0, _rowBits, 0, _rowCount);
+        System.arraycopy(aBoard._colHeights, 0, _colHeights, 0, _colCount);
+        System.arraycopy(aBoard._rowHashes, 0, _rowHashes, 0, _rowCount);
+        _hash = aBoard._hash;
+
+        // Copy tiles (or clear if given board has none)
+        if (_tiles != null) {
+            for (int row = 0; row < _rowCount; row++) {
+                if (aBoard._tiles != null)
+                    System.arraycopy(aBoard._tiles[row], 0, _tiles[row], 0, _colCount);
+                else Arrays.fill(_tiles[row], null);
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of this board.
+     */
+    public Board getCopy()
+    {
+        Board copy = new Board(_colCount, _rowCount, _tiles != null);
+        copy.copyFrom(this);
+        return copy;
+    }
+
+    /**
+     * Returns the row where given pattern lands if dropped from given column and row, or -1 if obstructed there.
+     * Uses column heights, so it only scans rows if pattern is below a column top (under an overhang).
+     */
+    public int getDropRow(Pattern aPattern, int aCol, int aRow)
+    {
+        // If outside left or right, return -1
+        if (aCol < 0 || aCol + aPattern.colCount > _colCount)
+            return -1;
+
+        // Get drop row from column heights: The lowest row where each pattern column bottom is above column top
+        int dropRow = _rowCount;
+        int[] colBottoms = aPattern.colBottoms;
+        for (int i = 0; i < colBottoms.length; i++)
+            dropRow = Math.min(dropRow, _rowCount - _colHeights[aCol + i] - colBottoms[i]);
+
+        // If drop row is at or below given row, return it (pattern is above every column top, so path is clear)
+        if (dropRow >= aRow)
+            return dropRow;
+
+        // Otherwise pattern is under an overhang: Scan down from given row
+        if (isObstructed(aPattern, aCol, aRow))
+            return -1;
+        int row = aRow;
+        while (!isObstructed(aPattern, aCol, row + 1))
+            row++;
+        return row;
+    }
+
+    /**
+     * Returns the Zobrist hash for given row and row bits.
+     */
+    private long getRowHash(int aRow, int theRowBits)
+    {
+        long rowHash = 0;
+        for (int bits = theRowBits; bits != 0; bits &= bits - 1)
+            rowHash ^= _zobristKeys[aRow * 32 + Integer.numberOfTrailingZeros(bits)];
+        return rowHash;
+    }
+
+    /**
+     * Returns the shared Zobrist keys for at least given row count (random keys from fixed seed, so every board
+     * and run gets the same keys).
+     */
+    private static synchronized long[] getZobristKeys(int aRowCount)
+    {
+        // If shared keys are big enough, just return
+        int keyCount = aRowCount * 32;
+        if (_sharedZobristKeys.length >= keyCount)
+            return _sharedZobristKeys;
+
+        // Create keys (same sequence, so existing keys don't change)
+        PieceGenerator generator = new PieceGenerator(0x5A0B71L);
+        long[] keys = new long[keyCount];
+        for (int i = 0; i < keyCount; i++)
+            keys[i] = generator.nextLong();
+        return _sharedZobristKeys = keys;
+    }
+}
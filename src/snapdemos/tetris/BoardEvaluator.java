@@ -0,0 +1,170 @@
+package snapdemos.tetris;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * A class to score a board for placement search, as the weighted sum of standard heuristic features:
+ * cleared lines, aggregate column height, holes, bumpiness and well depth.
+ */
+public class BoardEvaluator {
+
+    // The weights for each feature
+    private double[] _weights;
+
+    // Constants for feature indexes
+    public static final int LINES = 0;
+    public static final int HEIGHT = 1;
+    public static final int HOLES = 2;
+    public static final int BUMPINESS = 3;
+    public static final int WELLS = 4;
+    public static final int FEATURE_COUNT = 5;
+
+    // Constants for feature names
+    public static final String[] FEATURE_NAMES = { "Lines", "Height", "Holes", "Bumpiness", "Wells" };
+
+    // The default weights
+    public static final double[] DEFAULT_WEIGHTS = { .760666, -.510066, -.35663, -.184483, -.05 };
+
+    // The trained weights (from weights resource file written by TetrisTrainer)
+    private static double[] _trainedWeights;
+
+    // Constants for weights resource file
+    public static final String WEIGHTS_RESOURCE = "BotWeights.txt";
+
+    /**
+     * Constructor with trained weights (or default weights if weights resource isn't available).
+     */
+    public BoardEvaluator()
+    {
+        this(getTrainedWeights());
+    }
+
+    /**
+     * Constructor for given weights.
+     */
+    public BoardEvaluator(double[] theWeights)
+    {
+        if (theWeights.length != FEATURE_COUNT)
+            throw new IllegalArgumentException("BoardEvaluator: Expected " + FEATURE_COUNT + " weights: " + theWeights.length);
+        _weights = theWeights.clone();
+    }
+
+    /**
+     * Returns a copy of the weights.
+     */
+    public double[] getWeights()  { return _weights.clone(); }
+
+    /**
+     * Returns the weight for given feature index.
+     */
+    public double getWeight(int anIndex)  { return _weights[anIndex]; }
+
+    /**
+     * Returns the score for given board and number of lines cleared to get there.
+     * The given array is used to hold column heights and must be at least as long as board column count.
+     */
+    public double evaluate(Board aBoard, int aLineCount, int[] colHeights)
+    {
+        // Get column heights and holes: Iterate over rows top down, tracking columns covered by filled tiles
+        int colCount = aBoard.getColCount();
+        int rowCount = aBoard.getRowCount();
+        Arrays.fill(colHeights, 0, colCount, 0);
+        int coveredBits = 0;
+        int holeCount = 0;
+        for (int row = 0; row < rowCount; row++) {
+
+            // Add holes for covered columns that are empty in row
+            int rowBits = aBoard.getRowBits(row);
+            holeCount += Integer.bitCount(coveredBits & ~rowBits);
+
+            // Set heights for columns filled for first time
+            for (int newBits = rowBits & ~coveredBits; newBits != 0; newBits &= newBits - 1)
+                colHeights[Integer.numberOfTrailingZeros(newBits)] = rowCount - row;
+            coveredBits |= rowBits;
+        }
+
+        // Get aggregate height, bumpiness and wells (edge columns use inner neighbor for missing wall side, or own height if none)
+        int aggregateHeight = 0;
+        int bumpiness = 0;
+        int wellDepth = 0;
+        for (int col = 0; col < colCount; col++) {
+            int colHeight = colHeights[col];
+            aggregateHeight += colHeight;
+            if (col > 0)
+                bumpiness += Math.abs(colHeight - colHeights[col - 1]);
+            int leftHeight = col > 0 ? colHeights[col - 1] : colCount > 1 ? colHeights[col + 1] : colHeight;
+            int rightHeight = col + 1 < colCount ? colHeights[col + 1] : leftHeight;
+            wellDepth += Math.max(Math.min(leftHeight, rightHeight) - colHeight, 0);
+        }
+
+        // Return weighted sum
+        return _weights[LINES] * aLineCount + _weights[HEIGHT] * aggregateHeight + _weights[HOLES] * holeCount +
+                _weights[BUMPINESS] * bumpiness + _weights[WELLS] * wellDepth;
+    }
+
+    /**
+     * Returns the weights as text for weights file: a line of 'Name = Value' for each feature.
+     */
+    public String getWeightsText()
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < FEATURE_COUNT; i++)
+            sb.append(FEATURE_NAMES[i]).append(" = ").append(_weights[i]).append('\n');
+        return sb.toString();
+    }
+
+    /**
+     * Returns the trained weights from weights resource file (or default weights if not available).
+     */
+    public static synchronized double[] getTrainedWeights()
+    {
+        if (_trainedWeights != null) return _trainedWeights;
+
+        // Read weights resource (just use default weights if missing or invalid)
+        double[] weights = DEFAULT_WEIGHTS;
+        try (InputStream inputStream = BoardEvaluator.class.getResourceAsStream(WEIGHTS_RESOURCE)) {
+            if (inputStream != null)
+                weights = getWeightsForStream(inputStream);
+        }
+        catch (Exception e) { System.err.println("BoardEvaluator: Error reading weights: " + e); }
+
+        // Set and return
+        return _trainedWeights = weights;
+    }
+
+    /**
+     * Returns the weights read from given stream of weights text.
+     */
+    public static double[] getWeightsForStream(InputStream anInputStream) throws IOException
+    {
+        // Load properties
+        Properties props = new Properties();
+        props.load(anInputStream);
+
+        // Get weight for each feature name
+        double[] weights = new double[FEATURE_COUNT];
+        for (int i = 0; i < FEATURE_COUNT; i++) {
+            String value = props.getProperty(FEATURE_NAMES[i]);
+            if (value == null)
+                throw new IOException("BoardEvaluator: Missing weight: " + FEATURE_NAMES[i]);
+            weights[i] = Double.parseDouble(value.trim());
+        }
+
+        // Return
+        return weights;
+    }
+
+    /**
+     * Standard toString implementation.
+     */
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("BoardEvaluator {");
+        for (int i = 0; i < FEATURE_COUNT; i++)
+            sb.append(i > 0 ? ", " : " ").append(FEATURE_NAMES[i]).append('=').append(_weights[i]);
+        return sb.append(" }").toString();
+    }
+}
@@ -0,0 +1,26 @@
+package snapdemos.tetris;
+import snap.gfx.*;
+
+/**
+ * A class to show where the current block will land if dropped (as tile outlines).
+ */
+public class GhostBlock extends Block {
+
+    /**
+     * Constructor for given pattern.
+     */
+    public GhostBlock(Pattern aPattern)
+    {
+        super(aPattern);
+        setEffect(null);
+        setOpacity(.6);
+    }
+
+    /**
+     * Paint block pattern outline.
+     */
+    protected void paintFront(Painter aPntr)
+    {
+        _pattern.paintPatternOutline(aPntr);
+    }
+}
@@ -0,0 +1,164 @@
+package snapdemos.tetris;
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * A class to queue timestamped key down/up events for game actions and apply them at tick granularity.
+ * Held left/right keys auto-repeat like standard Tetris: the first move on key down, then repeat moves after the
+ * delayed auto shift (DAS) and every auto repeat rate (ARR) interval after that (ARR of zero slides to the wall).
+ * OS key-repeat events are ignored, so lateral speed doesn't depend on the OS repeat rate.
+ */
+public class InputQueue {
+
+    // The queued event times and events (action, with KEY_DOWN bit if key down)
+    private long[] _eventTimes = new long[16];
+    private int[] _events = new int[16];
+
+    // The queue start index and count
+    private int _start, _count;
+
+    // Whether key is down for each action
+    private boolean[] _keysDown = new boolean[4];
+
+    // The held move action (MOVE_LEFT or MOVE_RIGHT, or -1 if none) and the time of next repeat move
+    private int _heldAction = -1;
+    private long _nextRepeatTime;
+
+    // The delayed auto shift and auto repeat rate in milliseconds
+    private int _autoShiftDelay = 170;
+    private int _autoRepeatRate = 50;
+
+    // Constants
+    private static final int KEY_DOWN = 1 << 8;
+    private static final int MAX_SLIDE_MOVES = 32;
+
+    /**
+     * Constructor.
+     */
+    public InputQueue()
+    {
+        super();
+    }
+
+    /**
+     * Returns the delayed auto shift: the time in milliseconds a move key is held before it repeats.
+     */
+    public int getAutoShiftDelay()  { return _autoShiftDelay; }
+
+    /**
+     * Sets the delayed auto shift in milliseconds.
+     */
+    public void setAutoShiftDelay(int aValue)  { _autoShiftDelay = aValue; }
+
+    /**
+     * Returns the auto repeat rate: the time in milliseconds between repeat moves (zero to slide to wall).
+     */
+    public int getAutoRepeatRate()  { return _autoRepeatRate; }
+
+    /**
+     * Sets the auto repeat rate in milliseconds.
+     */
+    public void setAutoRepeatRate(int aValue)  { _autoRepeatRate = aValue; }
+
+    /**
+     * Adds a key down event for given action (Replay.MOVE_LEFT, MOVE_RIGHT, ROTATE or DROP) at given time.
+     */
+    public void keyDown(int anAction, long aTime)  { addEvent(anAction | KEY_DOWN, aTime); }
+
+    /**
+     * Adds a key up event for given action at given time.
+     */
+    public void keyUp(int anAction, long aTime)  { addEvent(anAction, aTime); }
+
+    /**
+     * Adds an event.
+     */
+    private void addEvent(int anEvent, long aTime)
+    {
+        // If full, grow arrays (unwrapping ring)
+        if (_count == _events.length) {
+            int length = _events.length;
+            long[] eventTimes = new long[length * 2];
+            int[] events = new int[length * 2];
+            for (int i = 0; i < length; i++) {
+                eventTimes[i] = _eventTimes[(_start + i) % length];
+                events[i] = _events[(_start + i) % length];
+            }
+            _eventTimes = eventTimes;
+            _events = events;
+            _start = 0;
+        }
+
+        // Add event
+        int index = (_start + _count++) % _events.length;
+        _eventTimes[index] = aTime;
+        _events[index] = anEvent;
+    }
+
+    /**
+     * Applies queued events up to given tick time and any due auto repeat moves, by calling given action handler
+     * (which returns whether action succeeded).
+     */
+    public void applyInput(long aTickTime, IntPredicate anActionHandler)
+    {
+        // Process events up to tick time
+        while (_count > 0 && _eventTimes[_start] <= aTickTime) {
+            long eventTime = _eventTimes[_start];
+            int event = _events[_start];
+            _start = (_start + 1) % _events.length;
+            _count--;
+            processEvent(event & ~KEY_DOWN, (event & KEY_DOWN) != 0, eventTime, anActionHandler);
+        }
+
+        // If move key held, do due repeat moves
+        if (_heldAction < 0)
+            return;
+        for (int i = 0; i < MAX_SLIDE_MOVES && _nextRepeatTime <= aTickTime; i++) {
+            if (!anActionHandler.test(_heldAction)) {
+                _nextRepeatTime = aTickTime + _autoRepeatRate;
+                break;
+            }
+            if (_autoRepeatRate > 0)
+                _nextRepeatTime += _autoRepeatRate;
+        }
+    }
+
+    /**
+     * Processes a key down/up event for given action.
+     */
+    private void processEvent(int anAction, boolean isKeyDown, long aTime, IntPredicate anActionHandler)
+    {
+        // If key up, clear key down and if held move action, switch to other move key (if down)
+        if (!isKeyDown) {
+            _keysDown[anAction] = false;
+            if (anAction == _heldAction) {
+                int otherAction = anAction == Replay.MOVE_LEFT ? Replay.MOVE_RIGHT : Replay.MOVE_LEFT;
+                _heldAction = _keysDown[otherAction] ? otherAction : -1;
+                _nextRepeatTime = aTime + _autoShiftDelay;
+            }
+            return;
+        }
+
+        // If key already down (OS key repeat), just return
+        if (_keysDown[anAction])
+            return;
+        _keysDown[anAction] = true;
+
+        // Do action and if move, set held action and first repeat time
+        anActionHandler.test(anAction);
+        if (anAction == Replay.MOVE_LEFT || anAction == Replay.MOVE_RIGHT) {
+            _heldAction = anAction;
+            _nextRepeatTime = aTime + _autoShiftDelay;
+        }
+    }
+
+    /**
+     * Clears queued events and held keys.
+     */
+    public void clear()
+    {
+        _start = _count = 0;
+        Arrays.fill(_keysDown, false);
+        _heldAction = -1;
+    }
+}
@@ -1,4 +1,7 @@
 package snapdemos.tetris;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 import snap.geom.*;
 import snap.gfx.*;
 import snap.view.*;
@@ -16,6 +19,12 @@ public class Pattern {
     
     // Array of packed (col,row) pairs of tiles for pattern
     public int[] fill;
+
+    // Array of bitmasks of filled columns for each pattern row (bit N set if column N filled)
+    public int[] rowBits;
+
+    // Array of the number of rows from pattern top to below the bottom tile for each pattern column
+    public int[] colBottoms;
     
     // The color of pattern tile
     private Color _tileColor;
@@ -23,6 +32,13 @@ public class Pattern {
     // An image of pattern tile
     private Image _tileImage;
 
+    // The four rotations of base pattern (shared by all rotations) and the index of this pattern in rotations
+    private Pattern[] _rotations;
+    private int _rotation;
+
+    // The number of unique rotations
+    private int _uniqueRotationCount;
+
     // Pattern constants
     public static Pattern SQUARE = new Pattern(2, 2, Color.BLUE.brighter().brighter(), new int[] { 0, 0, 0, 1, 1, 0, 1, 1 });
     public static Pattern STICK = new Pattern(4, 1, Color.MAGENTA, new int[] { 0, 0, 0, 1, 0, 2, 0, 3 });
@@ -36,17 +52,55 @@ public class Pattern {
     // Tile constants
     private static final Effect TILE_EFFECT = new EmbossEffect(60, 120, 4);
     private static final int TILE_OFFSET = 4; // Due to EmbossEffect radius
+    private static final Stroke OUTLINE_STROKE = new Stroke(2);
+
+    // The shared tile images for tile colors
+    private static Map<Color,Image> _tileImages = new HashMap<>();
 
     /**
-     * Constructor for row/col count, color and tile coords array.
+     * Constructor for row/col count, color and tile coords array. Also creates the other three rotations.
      */
     private Pattern(int aRowCount, int aColCount, Color aColor, int[] fillArray)
+    {
+        this(aRowCount, aColCount, aColor, fillArray, new Pattern[4], 0);
+
+        // Create rotations, each rotated right from previous
+        for (int i = 1; i < _rotations.length; i++) {
+            Pattern lastRotation = _rotations[i - 1];
+            int[] rotatedFillArray = lastRotation.getRotatedFillArray();
+            new Pattern(lastRotation.colCount, lastRotation.rowCount, aColor, rotatedFillArray, _rotations, i);
+        }
+
+        // Get number of unique rotations (1 if first rotation matches base, 2 if second matches base, otherwise 4)
+        int uniqueCount = isSameTiles(_rotations[1]) ? 1 : isSameTiles(_rotations[2]) ? 2 : 4;
+        for (Pattern rotation : _rotations)
+            rotation._uniqueRotationCount = uniqueCount;
+    }
+
+    /**
+     * Constructor for row/col count, color, tile coords array and shared rotations array and index.
+     */
+    private Pattern(int aRowCount, int aColCount, Color aColor, int[] fillArray, Pattern[] theRotations, int aRotation)
     {
         rowCount = aRowCount;
         colCount = aColCount;
         _tileColor = aColor;
         fill = fillArray;
         tileCount = fill.length / 2;
+
+        // Get row bits and column bottoms
+        rowBits = new int[rowCount];
+        colBottoms = new int[colCount];
+        for (int i = 0; i < fill.length; i += 2) {
+            int col = fill[i], row = fill[i + 1];
+            rowBits[row] |= 1 << col;
+            colBottoms[col] = Math.max(colBottoms[col], row + 1);
+        }
+
+        // Add to rotations
+        _rotations = theRotations;
+        _rotation = aRotation;
+        _rotations[aRotation] = this;
     }
 
     /**
@@ -62,6 +116,20 @@ public class Pattern {
         }
     }
 
+    /**
+     * Paints the pattern tile outlines to given painter (for ghost piece).
+     */
+    public void paintPatternOutline(Painter aPntr)
+    {
+        aPntr.setColor(_tileColor);
+        aPntr.setStroke(OUTLINE_STROKE);
+        for (int i = 0; i < fill.length; i++) {
+            double tileX = fill[i++] * Block.TILE_SIZE;
+            double tileY = fill[i] * Block.TILE_SIZE;
+            aPntr.drawRect(tileX + 2, tileY + 2, Block.TILE_SIZE - 4, Block.TILE_SIZE - 4);
+        }
+    }
+
     /**
      * Paints a tile at given XY.
      */
@@ -74,12 +142,31 @@ public class Pattern {
     /**
      * Returns the pattern derived by rotating this pattern clockwise.
      */
-    public Pattern getRotateRight()
+    public Pattern getRotateRight()  { return _rotations[(_rotation + 1) % _rotations.length]; }
+
+    /**
+     * Returns the rotation index of this pattern (0 for base pattern).
+     */
+    public int getRotation()  { return _rotation; }
+
+    /**
+     * Returns the number of unique rotations (1 for square, 2 for stick and S patterns, otherwise 4).
+     */
+    public int getUniqueRotationCount()  { return _uniqueRotationCount; }
+
+    /**
+     * Returns whether given pattern has the same tiles as this pattern.
+     */
+    public boolean isSameTiles(Pattern aPattern)
     {
-        int[] rotatedFillArray = getRotatedFillArray();
-        return new Pattern(colCount, rowCount, _tileColor, rotatedFillArray);
+        return colCount == aPattern.colCount && Arrays.equals(rowBits, aPattern.rowBits);
     }
 
+    /**
+     * Returns the base pattern for this pattern (unrotated).
+     */
+    public Pattern getBasePattern()  { return _rotations[0]; }
+
     /**
      * Returns the fill array rotated by 90 degrees counterclockwise.
      */
@@ -109,9 +196,29 @@ public class Pattern {
     }
 
     /**
-     * Creates an image of a tile for given color.
+     * Loads the tile images for all patterns, so rotating and painting never needs to render a tile.
+     */
+    public static void loadTileImages()
+    {
+        for (Pattern pattern : ALL_PATTERNS) {
+            Image tileImage = getTileImageForColor(pattern._tileColor);
+            for (Pattern rotation : pattern._rotations)
+                rotation._tileImage = tileImage;
+        }
+    }
+
+    /**
+     * Returns the shared image of a tile for given color.
      */
     private static Image getTileImageForColor(Color aColor)
+    {
+        return _tileImages.computeIfAbsent(aColor, Pattern::createTileImageForColor);
+    }
+
+    /**
+     * Creates an image of a tile for given color.
+     */
+    private static Image createTileImageForColor(Color aColor)
     {
         View view = new BoxView();
         view.setSize(Block.TILE_SIZE, Block.TILE_SIZE);
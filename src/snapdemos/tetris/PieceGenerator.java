@@ -0,0 +1,65 @@
+package snapdemos.tetris;
+
+/**
+ * A class to generate a reproducible sequence of piece patterns from a seed (using SplitMix64, which is fast,
+ * unsynchronized and gives the same sequence on every platform).
+ */
+public class PieceGenerator {
+
+    // The seed
+    private long _seed;
+
+    // The current state
+    private long _state;
+
+    /**
+     * Constructor for given seed.
+     */
+    public PieceGenerator(long aSeed)
+    {
+        setSeed(aSeed);
+    }
+
+    /**
+     * Returns the seed.
+     */
+    public long getSeed()  { return _seed; }
+
+    /**
+     * Sets the seed and restarts the sequence.
+     */
+    public void setSeed(long aSeed)
+    {
+        _seed = aSeed;
+        _state = aSeed;
+    }
+
+    /**
+     * Returns the next pattern.
+     */
+    public Pattern nextPattern()
+    {
+        int index = nextInt(Pattern.ALL_PATTERNS.length);
+        return Pattern.ALL_PATTERNS[index];
+    }
+
+    /**
+     * Returns the next random int from 0 to given bound (exclusive).
+     */
+    public int nextInt(int aBound)
+    {
+        long random = nextLong() >>> 32;
+        return (int) ((random * aBound) >>> 32);
+    }
+
+    /**
+     * Returns the next random long.
+     */
+    public long nextLong()
+    {
+        long z = _state += 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
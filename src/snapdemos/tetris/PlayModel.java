@@ -0,0 +1,437 @@
+package snapdemos.tetris;
+import java.util.Random;
+
+/**
+ * This class is the UI-free game model behind PlayView. It manages the board, the falling piece, the next piece and
+ * the score, and can be stepped without a view (for bots, benchmarks and tests).
+ */
+public class PlayModel {
+
+    // The board of settled tiles
+    private Board _board;
+
+    // The current piece pattern
+    private Pattern _pattern;
+
+    // The current piece column and row
+    private int _col, _row;
+
+    // The current piece fall offset below row (in row steps)
+    private int _rowStep;
+
+    // The next piece pattern
+    private Pattern _nextPattern;
+
+    // The score
+    private int _score;
+
+    // The number of cleared lines and settled pieces
+    private int _lineCount, _pieceCount;
+
+    // The number of ticks
+    private long _tickCount;
+
+    // Whether game is over
+    private boolean _gameOver;
+
+    // The rows removed by last settled piece and the count
+    private int[] _removedRows;
+    private int _removedRowCount;
+
+    // The listener
+    private Listener _listener;
+
+    // The random used to pick the seed for each game
+    private Random _seedRandom;
+
+    // The generator for piece patterns
+    private PieceGenerator _generator;
+
+    // Whether to record user actions, whether current game is recording and the replay of last recorded game
+    private boolean _recording = true;
+    private boolean _recordingGame;
+    private Replay _replay;
+
+    // Constants for the number of steps in a row and the number of steps a piece falls each tick
+    public static final int ROW_STEPS = 32;
+    public static final int FALL_STEPS = 3;
+
+    /**
+     * Constructor for given column and row count.
+     */
+    public PlayModel(int aColCount, int aRowCount)
+    {
+        this(aColCount, aRowCount, new Random());
+    }
+
+    /**
+     * Constructor for given column and row count and random seed (for reproducible game seeds).
+     */
+    public PlayModel(int aColCount, int aRowCount, long aSeed)
+    {
+        this(aColCount, aRowCount, new Random(aSeed));
+    }
+
+    /**
+     * Constructor for given column and row count and random for game seeds.
+     */
+    private PlayModel(int aColCount, int aRowCount, Random aSeedRandom)
+    {
+        _seedRandom = aSeedRandom;
+        _generator = new PieceGenerator(_seedRandom.nextLong());
+        _board = new Board(aColCount, aRowCount);
+        _removedRows = new int[aRowCount];
+        _nextPattern = _generator.nextPattern();
+    }
+
+    /**
+     * Returns the board.
+     */
+    public Board getBoard()  { return _board; }
+
+    /**
+     * Returns the current piece pattern.
+     */
+    public Pattern getPattern()  { return _pattern; }
+
+    /**
+     * Returns the current piece column.
+     */
+    public int getCol()  { return _col; }
+
+    /**
+     * Returns the current piece row.
+     */
+    public int getRow()  { return _row; }
+
+    /**
+     * Returns the current piece fall offset below row (in row steps).
+     */
+    public int getRowStep()  { return _rowStep; }
+
+    /**
+     * Returns the next piece pattern.
+     */
+    public Pattern getNextPattern()  { return _nextPattern; }
+
+    /**
+     * Returns the score.
+     */
+    public int getScore()  { return _score; }
+
+    /**
+     * Returns the number of cleared lines.
+     */
+    public int getLineCount()  { return _lineCount; }
+
+    /**
+     * Returns the number of settled pieces.
+     */
+    public int getPieceCount()  { return _pieceCount; }
+
+    /**
+     * Returns the number of ticks.
+     */
+    public long getTickCount()  { return _tickCount; }
+
+    /**
+     * Returns whether game is over.
+     */
+    public boolean isGameOver()  { return _gameOver; }
+
+    /**
+     * Returns the rows removed by the last settled piece (board rows prior to removal, from bottom to top).
+     */
+    public int[] getRemovedRows()  { return _removedRows; }
+
+    /**
+     * Returns the number of rows removed by the last settled piece.
+     */
+    public int getRemovedRowCount()  { return _removedRowCount; }
+
+    /**
+     * Returns the listener.
+     */
+    public Listener getListener()  { return _listener; }
+
+    /**
+     * Sets the listener.
+     */
+    public void setListener(Listener aListener)  { _listener = aListener; }
+
+    /**
+     * Returns the seed of current game piece sequence.
+     */
+    public long getSeed()  { return _generator.getSeed(); }
+
+    /**
+     * Returns whether model records user actions to replay.
+     */
+    public boolean isRecording()  { return _recording; }
+
+    /**
+     * Sets whether model records user actions to replay (starting with next game).
+     */
+    public void setRecording(boolean aValue)  { _recording = aValue; }
+
+    /**
+     * Returns the replay of last recorded game (or null if none). Games not recorded leave it unchanged.
+     */
+    public Replay getReplay()
+    {
+        if (_recordingGame)
+            _replay.setEndTick(_tickCount);
+        return _replay;
+    }
+
+    /**
+     * Starts a new game with new seed.
+     */
+    public void startGame()
+    {
+        startGame(_seedRandom.nextLong());
+    }
+
+    /**
+     * Starts a new game with given seed for piece sequence.
+     */
+    public void startGame(long aSeed)
+    {
+        // Reset piece generator, finish last recording and start new one if recording (otherwise keep last recording)
+        _generator.setSeed(aSeed);
+        _nextPattern = _generator.nextPattern();
+        if (_recordingGame)
+            _replay.setEndTick(_tickCount);
+        _recordingGame = _recording;
+        if (_recording)
+            _replay = new Replay(_board.getColCount(), _board.getRowCount(), aSeed);
+
+        // Reset state
+        _board.clear();
+        _score = 0;
+        _lineCount = _pieceCount = 0;
+        _tickCount = 0;
+        _removedRowCount = 0;
+        _gameOver = false;
+
+        // Add first piece
+        addNewPiece();
+    }
+
+    /**
+     * Advances the game one tick: Moves the current piece down and settles it if it can't move further.
+     * Returns true if piece was settled.
+     */
+    public boolean tick()
+    {
+        // If game over or no piece, just return
+        if (_gameOver || _pattern == null)
+            return false;
+        _tickCount++;
+
+        // Move piece down by fall steps, one row at a time, until obstructed
+        int rowStep = _rowStep + FALL_STEPS;
+        while (true) {
+
+            // If piece can't move into next row, settle it
+            if (_board.isObstructed(_pattern, _col, _row + 1)) {
+                _rowStep = 0;
+                settlePiece();
+                return true;
+            }
+
+            // If piece still in current row, set step and return
+            if (rowStep < ROW_STEPS) {
+                _rowStep = rowStep;
+                return false;
+            }
+
+            // Move to next row
+            _row++;
+            rowStep -= ROW_STEPS;
+        }
+    }
+
+    /**
+     * Moves the current piece left. Returns true if piece moved.
+     */
+    public boolean moveLeft()
+    {
+        if (_gameOver || _pattern == null || isPieceObstructed(_pattern, _col - 1))
+            return false;
+        _col--;
+        recordAction(Replay.MOVE_LEFT);
+        return true;
+    }
+
+    /**
+     * Moves the current piece right. Returns true if piece moved.
+     */
+    public boolean moveRight()
+    {
+        if (_gameOver || _pattern == null || isPieceObstructed(_pattern, _col + 1))
+            return false;
+        _col++;
+        recordAction(Replay.MOVE_RIGHT);
+        return true;
+    }
+
+    /**
+     * Rotates the current piece (shifting left if needed to stay on board). Returns true if piece rotated.
+     */
+    public boolean rotateBlock()
+    {
+        // If game over or no piece, just return
+        if (_gameOver || _pattern == null)
+            return false;
+
+        // Get rotated pattern and column (shifted left if rotated pattern would extend past right edge)
+        Pattern rotatedPattern = _pattern.getRotateRight();
+        int col = Math.min(_col, _board.getColCount() - rotatedPattern.colCount);
+        if (isPieceObstructed(rotatedPattern, col))
+            return false;
+
+        // Set pattern and column
+        _pattern = rotatedPattern;
+        _col = col;
+        recordAction(Replay.ROTATE);
+        return true;
+    }
+
+    /**
+     * Returns the row where current piece would land if dropped (or -1 if none).
+     */
+    public int getDropRow()
+    {
+        if (_gameOver || _pattern == null)
+            return -1;
+        return _board.getDropRow(_pattern, _col, _row);
+    }
+
+    /**
+     * Drops the current piece: Moves piece straight to landing row, adds 2 points for every row dropped and settles.
+     * Returns true if piece dropped.
+     */
+    public boolean dropBlock()
+    {
+        // If game over or no piece, just return
+        if (_gameOver || _pattern == null)
+            return false;
+
+        // Get drop row (just return if piece can't drop, which shouldn't happen)
+        int dropRow = getDropRow();
+        if (dropRow < 0)
+            return false;
+        recordAction(Replay.DROP);
+
+        // Move piece to drop row, add points for rows dropped and settle
+        _score += (dropRow - _row) * 2;
+        _row = dropRow;
+        _rowStep = 0;
+        settlePiece();
+        return true;
+    }
+
+    /**
+     * Performs given replay action.
+     */
+    public void doAction(int anAction)
+    {
+        switch (anAction) {
+            case Replay.MOVE_LEFT -> moveLeft();
+            case Replay.MOVE_RIGHT -> moveRight();
+            case Replay.ROTATE -> rotateBlock();
+            case Replay.DROP -> dropBlock();
+        }
+    }
+
+    /**
+     * Records given action to replay at current tick.
+     */
+    private void recordAction(int anAction)
+    {
+        if (_recordingGame)
+            _replay.addAction(_tickCount, anAction);
+    }
+
+    /**
+     * Returns whether current piece would be obstructed with given pattern at given column, at current row and step.
+     */
+    private boolean isPieceObstructed(Pattern aPattern, int aCol)
+    {
+        if (_board.isObstructed(aPattern, aCol, _row))
+            return true;
+        return _rowStep > 0 && _board.isObstructed(aPattern, aCol, _row + 1);
+    }
+
+    /**
+     * Adds current piece to board, removes full rows, updates score and adds new piece.
+     */
+    private void settlePiece()
+    {
+        // Add piece to board
+        _board.addPattern(_pattern, _col, _row);
+        _pieceCount++;
+        if (_listener != null)
+            _listener.pieceSettled(this);
+
+        // Remove full rows
+        _removedRowCount = _board.removeFullRows(_removedRows);
+
+        // If rows removed, update line count and score
+        if (_removedRowCount > 0) {
+            _lineCount += _removedRowCount;
+            _score += switch (_removedRowCount) { case 1 -> 300; case 2 -> 500; case 3 -> 500; default -> 800; };
+            if (_listener != null)
+                _listener.rowsRemoved(this);
+        }
+
+        // Add new piece
+        addNewPiece();
+    }
+
+    /**
+     * Adds a new piece at top center from next pattern and picks a new next pattern.
+     */
+    private void addNewPiece()
+    {
+        // Set pattern from next pattern and pick new next pattern
+        _pattern = _nextPattern;
+        _nextPattern = _generator.nextPattern();
+
+        // Center piece at top
+        _col = Math.round((_board.getColCount() - _pattern.colCount) / 2f);
+        _row = 0;
+        _rowStep = 0;
+
+        // If piece is obstructed, it's game over
+        if (_board.isObstructed(_pattern, _col, _row)) {
+            _gameOver = true;
+            if (_listener != null)
+                _listener.gameOver(this);
+            return;
+        }
+
+        // Notify listener
+        if (_listener != null)
+            _listener.pieceAdded(this);
+    }
+
+    /**
+     * An interface to receive notification of model changes.
+     */
+    public interface Listener {
+
+        /** Called when a new piece is added. */
+        default void pieceAdded(PlayModel aModel)  { }
+
+        /** Called when current piece is added to board (before full rows are removed). */
+        default void pieceSettled(PlayModel aModel)  { }
+
+        /** Called when full rows are removed (after piece is settled). */
+        default void rowsRemoved(PlayModel aModel)  { }
+
+        /** Called when game is over. */
+        default void gameOver(PlayModel aModel)  { }
+    }
+}
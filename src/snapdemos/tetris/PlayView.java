@@ -1,44 +1,50 @@
 package snapdemos.tetris;
-import java.util.*;
 import snap.geom.*;
 import snap.gfx.*;
 import snap.util.Convert;
-import snap.util.ListUtils;
-import snap.util.MathUtils;
 import snap.view.*;
-import snap.viewx.Explode;
 
 /**
  * This class is the main game view.
  */
 public class PlayView extends ParentView {
-    
+
+    // The model
+    private PlayModel _model;
+
     // The current block
     private Block _block;
+
+    // The ghost block to show where current block will land
+    private GhostBlock _ghostBlock;
     
     // The next block
     private Block _nextBlock;
     
-    // The list of stack rows
-    private List<StackRow> _stackRows = new ArrayList<>();
+    // The view to render settled tiles
+    private StackView _stackView;
     
-    // Whether user has requested block to drop faster
-    private boolean _dropFast;
-
     // The current score
     private int _score;
     
-    // Whether game is over
-    private boolean _gameOver;
-
     // The Run to be called for each frame during game loop
     private Runnable _timerFiredRun;
+
+    // The queue of user key input (applied each tick)
+    private InputQueue _inputQueue = new InputQueue();
+
+    // The reader for replay being played (and replay end tick)
+    private Replay.Reader _replayReader;
+    private long _replayEndTick;
     
     // The size of the field
     protected static int GRID_WIDTH = 10;
     private static int GRID_HEIGHT = 20;
     private static final int TILE_SIZE = Block.TILE_SIZE;
 
+    // The ratio of distance block moves toward model column each tick (render only)
+    private static final double BLOCK_SLIDE_RATIO = .5;
+
     // Constants
     static final String Score_Prop = "Score";
     static final String NextBlock_Prop = "NextBlock";
@@ -51,35 +57,109 @@ public class PlayView extends ParentView {
         super();
         setFill(Color.WHITE);
         setFocusable(true);
-        addEventHandler(this::handleKeyPressEvent, KeyPress);
+        addEventHandler(this::handleKeyEvent, KeyPress, KeyRelease);
 
         // Set size
         double viewW = GRID_WIDTH * TILE_SIZE;
         double viewH = GRID_HEIGHT * TILE_SIZE;
         setPrefSize(viewW, viewH);
 
+        // Load pattern tile images
+        Pattern.loadTileImages();
+
+        // Create model
+        _model = new PlayModel(GRID_WIDTH, GRID_HEIGHT);
+        _model.setListener(new ModelListener());
+
+        // Create stack view
+        _stackView = new StackView(GRID_WIDTH, GRID_HEIGHT);
+        addChild(_stackView);
+
         // Get starting  block
         getNextBlock(true);
     }
 
+    /**
+     * Returns the model.
+     */
+    public PlayModel getModel()  { return _model; }
+
+    /**
+     * Returns the queue of user key input (to configure auto shift delay and auto repeat rate).
+     */
+    public InputQueue getInputQueue()  { return _inputQueue; }
+
     /**
      * Starts play.
      */
     public void startGame()
     {
         // Reset state
-        _stackRows.clear();
         removeChildren();
-        _gameOver = false;
+        _stackView.clear();
+        addChild(_stackView);
         _score = 0;
+        _replayReader = null;
+        _inputQueue.clear();
 
-        // Start timer, add block
+        // Start timer, start model (adds block)
         setTimerRunning(true);
-        addNewBlock();
+        _model.startGame();
+        requestFocus();
+        getRootView().repaint();
+    }
+
+    /**
+     * Plays given replay: Fast-forwards model headless to given tick and pauses (or plays live from start if zero).
+     */
+    public void playReplay(Replay aReplay, long aTick)
+    {
+        // Check replay board size
+        if (aReplay.getColCount() != GRID_WIDTH || aReplay.getRowCount() != GRID_HEIGHT)
+            throw new IllegalArgumentException("PlayView.playReplay: Replay board size doesn't match");
+
+        // Reset state
+        setTimerRunning(false);
+        removeChildren();
+        addChild(_stackView);
+        _block = _ghostBlock = null;
+
+        // Start model with replay seed (not recording, to keep user's last recording) and fast-forward to tick without listener
+        PlayModel.Listener listener = _model.getListener();
+        _model.setListener(null);
+        boolean recording = _model.isRecording();
+        _model.setRecording(false);
+        _model.startGame(aReplay.getSeed());
+        _model.setRecording(recording);
+        _replayReader = aReplay.newReader();
+        _replayReader.playToTick(_model, aTick);
+        _replayEndTick = aReplay.getEndTick();
+        _model.setListener(listener);
+
+        // Reset views from model
+        resetViewsFromModel();
+
+        // If playing from start, start timer
+        if (aTick <= 0)
+            setTimerRunning(true);
         requestFocus();
         getRootView().repaint();
     }
 
+    /**
+     * Rebuilds stack tiles, block and score from current model state.
+     */
+    private void resetViewsFromModel()
+    {
+        // Set stack tiles from board
+        _stackView.setTilesFromBoard(_model.getBoard());
+
+        // Add block and set score
+        if (!_model.isGameOver())
+            addNewBlock();
+        setScore(_model.getScore());
+    }
+
     /**
      * Pauses game.
      */
@@ -102,6 +182,14 @@ public class PlayView extends ParentView {
         firePropChange(Score_Prop, _score, _score = aValue);
     }
 
+    /**
+     * Animates score to model score.
+     */
+    private void updateScore(int aTime)
+    {
+        getAnimCleared(aTime).setValue(Score_Prop, _model.getScore()).play();
+    }
+
     /**
      * Returns whether timer is running.
      */
@@ -128,30 +216,43 @@ public class PlayView extends ParentView {
     }
 
     /**
-     * Adds a new block to play view.
+     * Adds a new block to play view for model piece.
      */
-    public void addNewBlock()
+    private void addNewBlock()
     {
-        // Create block
-        _block = getNextBlock(true);
+        // Create block for model pattern
+        _block = new Block(_model.getPattern());
+        _block.setXY(_model.getCol() * TILE_SIZE, getBlockY());
 
-        // Center block
-        double blockX = MathUtils.round((getWidth() - _block.getWidth()) / 2, TILE_SIZE);
-        _block.setXY(blockX, 0);
+        // Create ghost block and add (behind block)
+        _ghostBlock = new GhostBlock(_model.getPattern());
+        addChild(_ghostBlock);
+        updateGhostBlock();
 
         // Add block
         addChild(_block);
-        _dropFast = false;
+
+        // Reset next block
+        getNextBlock(true);
+    }
+
+    /**
+     * Updates ghost block pattern and location for model piece drop row.
+     */
+    private void updateGhostBlock()
+    {
+        _ghostBlock.setPattern(_model.getPattern());
+        _ghostBlock.setXY(_model.getCol() * TILE_SIZE, _model.getDropRow() * TILE_SIZE);
     }
 
     /**
-     * Returns the next block with option to reset.
+     * Returns the next block with option to reset (to model next pattern).
      */
     public Block getNextBlock(boolean doReset)
     {
         Block nextBlock = _nextBlock;
         if (doReset) {
-            _nextBlock = Block.getRandomBlock();
+            _nextBlock = new Block(_model.getNextPattern());
             firePropChange(NextBlock_Prop, nextBlock, _nextBlock);
         }
 
@@ -160,161 +261,82 @@ public class PlayView extends ParentView {
     }
 
     /**
-     * Called when timer fires.
-     */
-    private void handleTimerFired()
-    {
-        // If no block, return
-        if(_block == null) return;
-
-        // Update block position
-        int dy = _dropFast ? 18 : 3;
-        _block.setY(_block.getY() + dy);
-
-        // If block stopped, add to stack and start new
-        if(isBlockObstructed())
-            handleBlockStopped();
-    }
-
-    /**
-     * Returns whether block is obstructed by stack or bottom.
+     * Returns the block Y for model piece row and row step.
      */
-    private boolean isBlockObstructed()
+    private double getBlockY()
     {
-        // If block intersects stack row, return true
-        for (int i = _stackRows.size() - 1; i >= 0; i--) {
-            StackRow row = _stackRows.get(i);
-            if (row.intersectsBlock(_block))
-                return true;
-        }
-
-        // If block intersects bottom, return true
-        if (MathUtils.gte(_block.getMaxY(), getHeight()))
-            return true;
-
-        // Return block not obstructed
-        return false;
+        double rowY = _model.getRow() + _model.getRowStep() / (double) PlayModel.ROW_STEPS;
+        return rowY * TILE_SIZE;
     }
 
     /**
-     * Called when block hits stack tile or bottom.
+     * Called when timer fires.
      */
-    private void handleBlockStopped()
+    private void handleTimerFired()
     {
-        // Back block up
-        while (isBlockObstructed() && _block.getY() > 0)
-            _block.setY(_block.getY() - 1);
-
-        // Add stack rows to accommodate block
-        topOffStackRowsList();
-        if (_gameOver)
-            return;
-        addBlockToRows();
-
-        // Add new block
-        addNewBlock();
-    }
+        // If no block, return
+        if(_block == null) return;
 
-    /**
-     * Makes sure there are enough stack rows to reach current block y.
-     */
-    private void topOffStackRowsList()
-    {
-        while (_stackRows.isEmpty() || _block.getY() + TILE_SIZE / 2 < getTopRow().getY()) {
-            addStackRow();
-            if (_gameOver)
+        // If playing replay, do actions for current tick (and stop if at end)
+        if (_replayReader != null) {
+            while (_replayReader.getNextTick() == _model.getTickCount())
+                doAction(_replayReader.readAction());
+            if (_model.getTickCount() >= _replayEndTick) {
+                setTimerRunning(false);
+                _replayReader = null;
                 return;
+            }
         }
-    }
 
-    /**
-     * Adds a stack row.
-     */
-    private void addStackRow()
-    {
-        // If all rows full, it's GameOver
-        if (_stackRows.size() >= GRID_HEIGHT - 1) {
-            gameOver();
+        // Otherwise apply user input for tick
+        else _inputQueue.applyInput(System.currentTimeMillis(), this::doAction);
+
+        // If game ended from action, just return
+        if (_block == null)
             return;
-        }
 
-        // Create new row, position above TopRow and add
-        StackRow newRow = new StackRow();
-        StackRow topRow = getTopRow();
-        double rowY = topRow != null ? topRow.getY() : getHeight();
-        rowY -= TILE_SIZE;
-        newRow.setY(rowY);
-        newRow._rowNum = _stackRows.size();
-        _stackRows.add(newRow); addChild(newRow);
+        // Update model and block position
+        _model.tick();
+        if (_block != null)
+            updateBlockXY();
     }
 
     /**
-     * Removes stack row (with explosion) and moves rows above down.
+     * Updates block XY for model piece: Y from row and row step and X eased toward column (render only).
      */
-    void removeStackRow(StackRow aRow)
+    private void updateBlockXY()
     {
-        // Cache row index, explode row and remove from Rows list
-        int rowIndex = _stackRows.indexOf(aRow);
-        new Explode(aRow, 20, 5).play();
-        _stackRows.remove(aRow);
-        removeChild(aRow);
-
-        // Iterate over rows above and configure to move down
-        for (int i = rowIndex; i < _stackRows.size(); i++) {
-            StackRow row = _stackRows.get(i);
-            row.setY(getHeight() - (i + 1) * TILE_SIZE);
-            row.setTransY(row.getTransY() - TILE_SIZE);
-            row.getAnimCleared(500).setTransY(0).play();
-        }
+        double colX = _model.getCol() * TILE_SIZE;
+        double blockX = _block.getX();
+        double deltaX = colX - blockX;
+        double newX = Math.abs(deltaX) < 1 ? colX : blockX + deltaX * BLOCK_SLIDE_RATIO;
+        _block.setXY(newX, getBlockY());
     }
 
     /**
-     * Adds the current block to rows.
+     * Adds the current block to stack tiles (after model has added piece to board).
      */
     void addBlockToRows()
     {
-        // Get block row/col counts
-        int rowCount = _block._pattern.rowCount;
-
-        // Iterate over block rows
-        for (int i = 0; i < rowCount; i++) {
-            double blockY = _block.getY() + i * TILE_SIZE + TILE_SIZE / 2;
-            StackRow row = getRowForY(blockY);
-            if (row == null)
-                continue;
-            row.addBlockTilesToRow(_block);
-        }
+        // Update stack tiles for block rows
+        _stackView.setRowTilesFromBoard(_model.getBoard(), _model.getRow(), _model.getPattern().rowCount);
 
-        // Remove block
+        // Remove block and ghost block
         removeChild(_block);
-
-        // If full rows, update score
-        int fullRowCount = ListUtils.count(_stackRows, StackRow::isFull);
-        if (fullRowCount > 0) {
-            int points = switch (fullRowCount) { case 1 -> 300; case 2 -> 500; case 3 -> 500; default -> 800; };
-            int newScore = getScore() + points;
-            getAnimCleared(500).setValue(Score_Prop, newScore).play();
-        }
-
-        // Remove full rows
-        for (int i = _stackRows.size() - 1; i >= 0; i--) {
-            StackRow row = _stackRows.get(i);
-            if (row.isFull())
-                removeStackRow(row);
-        }
+        removeChild(_ghostBlock);
+        _block = _ghostBlock = null;
     }
 
     /**
-     * Returns the top row.
+     * Removes the stack tiles for model removed rows.
      */
-    private StackRow getTopRow()  { return !_stackRows.isEmpty() ? _stackRows.get(_stackRows.size() - 1) : null; }
-
-    /**
-     * Returns the row for y value.
-     */
-    private StackRow getRowForY(double aY)
+    private void removeStackRows()
     {
-        return ListUtils.findMatch(_stackRows, row -> row.contains(row.getWidth() / 2, aY - row.getY()));
+        // Update score
+        updateScore(500);
+
+        // Remove rows from stack view (with explosion)
+        _stackView.removeRows(_model.getRemovedRows(), _model.getRemovedRowCount());
     }
 
     /**
@@ -322,16 +344,10 @@ public class PlayView extends ParentView {
      */
     private void gameOver()
     {
-        _gameOver = true;
         setTimerRunning(false);
 
         // Explode rows
-        for (int i = 0; i < _stackRows.size(); i++) {
-            StackRow row = _stackRows.get(_stackRows.size() - i - 1);
-            new Explode(row, 20, 5).playDelayed(i * 150);
-        }
-
-        addBlockToRows();
+        int rowCount = _stackView.explodeAllRows(_model.getBoard(), 150);
 
         // Create 'Game Over' label and add
         Label gameOverLabel = new Label("Game Over");
@@ -345,50 +361,97 @@ public class PlayView extends ParentView {
         addChild(gameOverLabel);
 
         // Animate game over label spin in
-        int time = _stackRows.size() * 150;
+        int time = rowCount * 150;
         gameOverLabel.getAnim(time).getAnim(time + 1200).setScale(1).setOpacity(1).setRotate(360).play();
     }
 
     /**
-     * Handles keypress event.
+     * Handles key press/release event: Adds key down/up for action to input queue (applied on next tick).
      */
-    private void handleKeyPressEvent(ViewEvent anEvent)
+    private void handleKeyEvent(ViewEvent anEvent)
     {
-        switch (anEvent.getKeyCode()) {
-            case KeyCode.LEFT -> moveLeft();
-            case KeyCode.RIGHT -> moveRight();
-            case KeyCode.DOWN -> dropBlock();
-            case KeyCode.UP, KeyCode.SPACE -> rotateBlock();
-        }
+        // If playing replay, just return
+        if (_replayReader != null)
+            return;
+
+        // Get action for key
+        int action = switch (anEvent.getKeyCode()) {
+            case KeyCode.LEFT -> Replay.MOVE_LEFT;
+            case KeyCode.RIGHT -> Replay.MOVE_RIGHT;
+            case KeyCode.DOWN -> Replay.DROP;
+            case KeyCode.UP, KeyCode.SPACE -> Replay.ROTATE;
+            default -> -1;
+        };
+
+        // Add key down/up to input queue
+        if (action < 0)
+            return;
+        long time = System.currentTimeMillis();
+        if (anEvent.isKeyPress())
+            _inputQueue.keyDown(action, time);
+        else _inputQueue.keyUp(action, time);
+        anEvent.consume();
+    }
+
+    /**
+     * Performs given action (Replay.MOVE_LEFT, MOVE_RIGHT, ROTATE or DROP). Returns true if action succeeded.
+     */
+    public boolean doAction(int anAction)
+    {
+        return switch (anAction) {
+            case Replay.MOVE_LEFT -> moveLeft();
+            case Replay.MOVE_RIGHT -> moveRight();
+            case Replay.ROTATE -> rotateBlock();
+            case Replay.DROP -> dropBlock();
+            default -> false;
+        };
     }
 
     /**
      * Move Left.
      */
-    public void moveLeft()  { _block.moveLeft(); }
+    public boolean moveLeft()
+    {
+        if (!_model.moveLeft())
+            return false;
+        updateGhostBlock();
+        return true;
+    }
 
     /**
      * Move Right.
      */
-    public void moveRight()  { _block.moveRight();}
+    public boolean moveRight()
+    {
+        if (!_model.moveRight())
+            return false;
+        updateGhostBlock();
+        return true;
+    }
 
     /**
      * Drop block.
      */
-    public void dropBlock()
+    public boolean dropBlock()
     {
-        _dropFast = true;
-
-        // Add 2 points for every row dropped
-        int rowsLeft = (int) Math.round((getHeight() - _block.getMaxY()) / TILE_SIZE);
-        int newScore = getScore() + rowsLeft * 2;
-        getAnimCleared(300).setValue(Score_Prop, newScore).play();
+        // Drop model piece (moves to drop row, adds 2 points for every row dropped and settles)
+        if (!_model.dropBlock())
+            return false;
+        updateScore(300);
+        return true;
     }
 
     /**
      * Rotate block.
      */
-    public void rotateBlock()  { _block.rotateRight(); }
+    public boolean rotateBlock()
+    {
+        if (!_model.rotateBlock())
+            return false;
+        _block.setPattern(_model.getPattern());
+        updateGhostBlock();
+        return true;
+    }
 
     /**
      * Override to support props for this class.
@@ -411,4 +474,22 @@ public class PlayView extends ParentView {
             setScore(Convert.intValue(aValue));
         else super.setPropValue(propName, aValue);
     }
+
+    /**
+     * A model listener to update views for model changes.
+     */
+    private class ModelListener implements PlayModel.Listener {
+
+        @Override
+        public void pieceAdded(PlayModel aModel)  { addNewBlock(); }
+
+        @Override
+        public void pieceSettled(PlayModel aModel)  { addBlockToRows(); }
+
+        @Override
+        public void rowsRemoved(PlayModel aModel)  { removeStackRows(); }
+
+        @Override
+        public void gameOver(PlayModel aModel)  { PlayView.this.gameOver(); }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,322 @@
+package snapdemos.tetris;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * A class to hold a compact recording of a game: The board size and piece seed, plus a binary log of user actions.
+ * Each action is stored as a single varint of the ticks since the previous action and the action code
+ * ((tickDelta << 2) | action), so a typical action takes one byte. A replay can be played headless at full speed
+ * (Reader.playToTick) or live in PlayView (PlayView.playReplay).
+ */
+public class Replay {
+
+    // The board column and row count
+    private int _colCount, _rowCount;
+
+    // The seed for piece generator
+    private long _seed;
+
+    // The action log bytes and length
+    private byte[] _bytes = new byte[64];
+    private int _length;
+
+    // The tick of last action
+    private long _lastActionTick;
+
+    // The tick when recording ended
+    private long _endTick;
+
+    // Constants for actions
+    public static final int MOVE_LEFT = 0;
+    public static final int MOVE_RIGHT = 1;
+    public static final int ROTATE = 2;
+    public static final int DROP = 3;
+
+    // Constants for file header
+    private static final int MAGIC = 0x54525032; // "TRP2"
+
+    /**
+     * Constructor for given board size and seed.
+     */
+    public Replay(int aColCount, int aRowCount, long aSeed)
+    {
+        _colCount = aColCount;
+        _rowCount = aRowCount;
+        _seed = aSeed;
+    }
+
+    /**
+     * Returns the board column count.
+     */
+    public int getColCount()  { return _colCount; }
+
+    /**
+     * Returns the board row count.
+     */
+    public int getRowCount()  { return _rowCount; }
+
+    /**
+     * Returns the seed for piece generator.
+     */
+    public long getSeed()  { return _seed; }
+
+    /**
+     * Returns the tick when recording ended.
+     */
+    public long getEndTick()  { return _endTick; }
+
+    /**
+     * Sets the tick when recording ended.
+     */
+    public void setEndTick(long aTick)  { _endTick = aTick; }
+
+    /**
+     * Returns the number of bytes in action log.
+     */
+    public int getLength()  { return _length; }
+
+    /**
+     * Adds an action at given tick (the number of ticks completed before action).
+     */
+    public void addAction(long aTick, int anAction)
+    {
+        long tickDelta = aTick - _lastActionTick;
+        _lastActionTick = aTick;
+        _endTick = Math.max(_endTick, aTick);
+        writeVarLong((tickDelta << 2) | anAction);
+    }
+
+    /**
+     * Returns a new model for replay board size, started with replay seed.
+     */
+    public PlayModel newModel()
+    {
+        PlayModel model = new PlayModel(_colCount, _rowCount);
+        model.setRecording(false);
+        model.startGame(_seed);
+        return model;
+    }
+
+    /**
+     * Returns a new reader for action log.
+     */
+    public Reader newReader()  { return new Reader(); }
+
+    /**
+     * Returns replay as bytes: header (magic, board size, seed, end tick) and action log.
+     */
+    public byte[] getBytes()
+    {
+        Replay header = new Replay(0, 0, 0);
+        header.writeInt(MAGIC);
+        header.writeVarLong(_colCount);
+        header.writeVarLong(_rowCount);
+        header.writeVarLong(_seed);
+        header.writeVarLong(_endTick);
+        header.writeVarLong(_length);
+        byte[] bytes = Arrays.copyOf(header._bytes, header._length + _length);
+        System.arraycopy(_bytes, 0, bytes, header._length, _length);
+        return bytes;
+    }
+
+    /**
+     * Writes replay to given file path.
+     */
+    public void writeToFile(Path aPath) throws IOException
+    {
+        Files.write(aPath, getBytes());
+    }
+
+    /**
+     * Writes an int as four bytes.
+     */
+    private void writeInt(int aValue)
+    {
+        for (int shift = 24; shift >= 0; shift -= 8)
+            writeByte(aValue >>> shift);
+    }
+
+    /**
+     * Writes a long as varint (7 bits per byte, high bit set if more bytes follow).
+     */
+    private void writeVarLong(long aValue)
+    {
+        while ((aValue & ~0x7FL) != 0) {
+            writeByte((int) (aValue & 0x7F) | 0x80);
+            aValue >>>= 7;
+        }
+        writeByte((int) aValue);
+    }
+
+    /**
+     * Writes a byte.
+     */
+    private void writeByte(int aValue)
+    {
+        if (_length == _bytes.length)
+            _bytes = Arrays.copyOf(_bytes, _length * 2);
+        _bytes[_length++] = (byte) aValue;
+    }
+
+    /**
+     * Returns a replay for given bytes.
+     */
+    public static Replay newReplayForBytes(byte[] theBytes)
+    {
+        // Read header
+        Replay bytesReplay = new Replay(0, 0, 0);
+        bytesReplay._bytes = theBytes;
+        bytesReplay._length = theBytes.length;
+        Reader reader = bytesReplay.newReader();
+        if (reader.readInt() != MAGIC)
+            throw new IllegalArgumentException("Replay: Invalid replay bytes");
+        int colCount = (int) reader.readVarLong();
+        int rowCount = (int) reader.readVarLong();
+        long seed = reader.readVarLong();
+        long endTick = reader.readVarLong();
+        long length = reader.readVarLong();
+        if (length < 0 || length > theBytes.length - reader._index)
+            throw new IllegalArgumentException("Replay: Truncated replay bytes");
+
+        // Create replay and copy action log
+        Replay replay = new Replay(colCount, rowCount, seed);
+        replay._bytes = Arrays.copyOfRange(theBytes, reader._index, reader._index + (int) length);
+        replay._length = (int) length;
+        replay._endTick = endTick;
+        return replay;
+    }
+
+    /**
+     * Returns a replay read from given file path.
+     */
+    public static Replay newReplayForFile(Path aPath) throws IOException
+    {
+        return newReplayForBytes(Files.readAllBytes(aPath));
+    }
+
+    /**
+     * A class to read actions from action log.
+     */
+    public class Reader {
+
+        // The index of next byte to read
+        private int _index;
+
+        // The next action and its tick
+        private int _nextAction;
+        private long _nextTick = -1;
+
+        // The tick of last read action
+        private long _lastReadTick;
+
+        /**
+         * Returns the tick of next action (or Long.MAX_VALUE if no more actions).
+         */
+        public long getNextTick()
+        {
+            if (_nextTick < 0) {
+                if (_index >= _length)
+                    return Long.MAX_VALUE;
+                long value = readVarLong();
+                _nextAction = (int) (value & 3);
+                _lastReadTick += value >>> 2;
+                _nextTick = _lastReadTick;
+            }
+            return _nextTick;
+        }
+
+        /**
+         * Returns the next action and advances (or -1 if no more actions).
+         */
+        public int readAction()
+        {
+            if (getNextTick() == Long.MAX_VALUE)
+                return -1;
+            _nextTick = -1;
+            return _nextAction;
+        }
+
+        /**
+         * Applies the actions for model current tick.
+         */
+        public void applyActions(PlayModel aModel)
+        {
+            while (getNextTick() == aModel.getTickCount())
+                aModel.doAction(readAction());
+        }
+
+        /**
+         * Plays given model (started with replay seed) headless to given tick, including actions at that tick
+         * (or until game over).
+         */
+        public void playToTick(PlayModel aModel, long aTick)
+        {
+            while (aModel.getTickCount() < aTick && !aModel.isGameOver()) {
+                applyActions(aModel);
+                aModel.tick();
+            }
+            applyActions(aModel);
+        }
+
+        /**
+         * Reads an int from four bytes.
+         */
+        private int readInt()
+        {
+            if (_index + 4 > _length)
+                throw new IllegalArgumentException("Replay: Truncated replay bytes");
+            int value = 0;
+            for (int i = 0; i < 4; i++)
+                value = (value << 8) | (_bytes[_index++] & 0xFF);
+            return value;
+        }
+
+        /**
+         * Reads a varint long (throws IllegalArgumentException if truncated or too long).
+         */
+        private long readVarLong()
+        {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                if (_index >= _length)
+                    throw new IllegalArgumentException("Replay: Truncated replay bytes");
+                if (shift >= 64)
+                    throw new IllegalArgumentException("Replay: Invalid varint in replay bytes");
+                int b = _bytes[_index++];
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+        }
+    }
+
+    /**
+     * Plays a replay file headless to given tick (or end) and prints the result.
+     */
+    public static void main(String[] args) throws IOException
+    {
+        // Read replay and get tick
+        Replay replay = newReplayForFile(Path.of(args[0]));
+        long tick = args.length > 1 ? Long.parseLong(args[1]) : replay.getEndTick();
+
+        // Play to tick
+        long startTime = System.nanoTime();
+        PlayModel model = replay.newModel();
+        replay.newReader().playToTick(model, tick);
+        long time = (System.nanoTime() - startTime) / 1000000;
+
+        // Print result and board
+        System.out.println("Tick: " + model.getTickCount() + ", Score: " + model.getScore() + ", Lines: " +
+                model.getLineCount() + ", Pieces: " + model.getPieceCount() + ", GameOver: " + model.isGameOver() +
+                " (" + time + " ms)");
+        Board board = model.getBoard();
+        for (int row = 0; row < board.getRowCount(); row++) {
+            StringBuilder sb = new StringBuilder();
+            for (int col = 0; col < board.getColCount(); col++)
+                sb.append(board.isTileFilled(col, row) ? '#' : '.');
+            System.out.println(sb);
+        }
+    }
+}
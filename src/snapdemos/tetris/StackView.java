@@ -0,0 +1,285 @@
+package snapdemos.tetris;
+import snap.gfx.*;
+import snap.util.Convert;
+import snap.view.*;
+import snap.viewx.Explode;
+
+/**
+ * A class to render the settled block tiles (from PlayView board) as a single layer. The tiles are drawn into one
+ * backing image that is updated incrementally (rows are painted when a piece settles and compacted down when rows
+ * are removed), and the block shadow is baked into a cached copy once per change, instead of per row per frame.
+ */
+public class StackView extends View {
+
+    // The column and row count
+    private int _colCount, _rowCount;
+
+    // The image of settled tiles
+    private Image _tilesImage;
+
+    // The image of settled tiles with shadow (cached) and the shadow offset
+    private Image _stackImage;
+    private double _stackImageOffset;
+
+    // The number of rows each row has dropped (for drop animation) and the ratio of drop still to show
+    private double[] _rowDrops;
+    private double _dropRatio;
+
+    // Constants
+    private static final int TILE_SIZE = Block.TILE_SIZE;
+    static final String DropRatio_Prop = "DropRatio";
+
+    /**
+     * Constructor for given column and row count.
+     */
+    public StackView(int aColCount, int aRowCount)
+    {
+        super();
+        _colCount = aColCount;
+        _rowCount = aRowCount;
+        _rowDrops = new double[aRowCount];
+
+        // Set size and create tiles image
+        double viewW = aColCount * TILE_SIZE;
+        double viewH = aRowCount * TILE_SIZE;
+        setSize(viewW, viewH);
+        setManaged(false);
+        _tilesImage = Image.getImageForSize(viewW, viewH, true);
+    }
+
+    /**
+     * Sets the tiles for all rows from given board.
+     */
+    public void setTilesFromBoard(Board aBoard)
+    {
+        setRowTilesFromBoard(aBoard, 0, _rowCount);
+        setDropRatio(0);
+    }
+
+    /**
+     * Sets the tiles for given range of rows from given board (after piece is settled).
+     */
+    public void setRowTilesFromBoard(Board aBoard, int aRow, int aRowCount)
+    {
+        // Get row range (clamped to board)
+        int startRow = Math.max(aRow, 0);
+        int endRow = Math.min(aRow + aRowCount, _rowCount);
+        if (startRow >= endRow)
+            return;
+
+        // Clear rows and paint filled tiles
+        Painter pntr = _tilesImage.getPainter();
+        pntr.clearRect(0, startRow * TILE_SIZE, getWidth(), (endRow - startRow) * TILE_SIZE);
+        for (int row = startRow; row < endRow; row++) {
+            _rowDrops[row] = 0;
+            if (aBoard.getRowBits(row) == 0)
+                continue;
+            for (int col = 0; col < _colCount; col++) {
+                Pattern pattern = aBoard.getTilePattern(col, row);
+                if (pattern != null)
+                    pattern.paintTile(pntr, col * TILE_SIZE, row * TILE_SIZE);
+            }
+        }
+        pntr.flush();
+
+        // Clear stack image and repaint
+        clearStackImage();
+    }
+
+    /**
+     * Removes given rows (with explosion) and compacts rows above down in one pass. Rows are pre-removal board row
+     * indexes, ordered bottom to top (as from Board.removeFullRows).
+     */
+    public void removeRows(int[] theRows, int aRowCount)
+    {
+        // Explode removed rows
+        for (int i = 0; i < aRowCount; i++)
+            explodeRow(theRows[i], 0);
+
+        // Get row drops in single sweep: Each surviving row drops by the number of removed rows below it
+        // (plus current drop, if drop animation still running)
+        int removedIndex = 0;
+        int dstRow = _rowCount - 1;
+        for (int row = _rowCount - 1; row >= 0; row--) {
+            if (removedIndex < aRowCount && theRows[removedIndex] == row) {
+                removedIndex++;
+                continue;
+            }
+            _rowDrops[dstRow] = _rowDrops[row] * _dropRatio + (dstRow - row);
+            dstRow--;
+        }
+        for (; dstRow >= 0; dstRow--)
+            _rowDrops[dstRow] = 0;
+
+        // Shift each run of surviving rows between removed rows down by removed rows below it (one blit per run)
+        for (int i = 0; i < aRowCount; i++) {
+            int startRow = i + 1 < aRowCount ? theRows[i + 1] + 1 : 0;
+            int endRow = theRows[i];
+            shiftRows(startRow, endRow - startRow, i + 1);
+        }
+
+        // Clear vacated rows at top
+        Painter pntr = _tilesImage.getPainter();
+        pntr.clearRect(0, 0, getWidth(), aRowCount * TILE_SIZE);
+        pntr.flush();
+
+        // Clear stack image and animate drop (one animation for all rows)
+        clearStackImage();
+        setDropRatio(1);
+        getAnimCleared(500).setValue(DropRatio_Prop, 0d).play();
+    }
+
+    /**
+     * Shifts given run of rows down by given number of rows in tiles image with a single blit.
+     */
+    private void shiftRows(int aRow, int aRowCount, int aShift)
+    {
+        // If no rows, just return
+        if (aRowCount <= 0)
+            return;
+
+        // Copy rows, clear rows and destination and draw rows at destination
+        double rowsY = aRow * TILE_SIZE;
+        double rowsH = aRowCount * TILE_SIZE;
+        Image rowsImage = _tilesImage.copyForCropRect(0, rowsY, getWidth(), rowsH);
+        Painter pntr = _tilesImage.getPainter();
+        pntr.clearRect(0, rowsY, getWidth(), rowsH + aShift * TILE_SIZE);
+        pntr.drawImage(rowsImage, 0, rowsY + aShift * TILE_SIZE);
+        pntr.flush();
+    }
+
+    /**
+     * Explodes given row (after given delay in milliseconds, in which case row view stays until explode).
+     */
+    public void explodeRow(int aRow, int aDelay)
+    {
+        // Create view for row tiles image
+        double rowY = aRow * TILE_SIZE;
+        Image rowImage = _tilesImage.copyForCropRect(0, rowY, getWidth(), TILE_SIZE);
+        ImageView rowView = new ImageView(rowImage);
+        rowView.setBounds(getX(), getY() + rowY, getWidth(), TILE_SIZE);
+
+        // Add to parent and explode (remove now if no delay)
+        ParentView parent = getParent();
+        parent.addChild(rowView);
+        new Explode(rowView, 20, 5).playDelayed(aDelay);
+        if (aDelay == 0)
+            parent.removeChild(rowView);
+    }
+
+    /**
+     * Explodes all filled rows from bottom up (staggered by given delay in milliseconds) and clears tiles.
+     * Returns the number of rows exploded.
+     */
+    public int explodeAllRows(Board aBoard, int aDelay)
+    {
+        // Iterate over filled rows from bottom and explode
+        int explodeCount = 0;
+        for (int row = _rowCount - 1; row >= 0 && aBoard.getRowBits(row) != 0; row--)
+            explodeRow(row, explodeCount++ * aDelay);
+
+        // Clear tiles and return
+        clear();
+        return explodeCount;
+    }
+
+    /**
+     * Clears the tiles.
+     */
+    public void clear()
+    {
+        Painter pntr = _tilesImage.getPainter();
+        pntr.clearRect(0, 0, getWidth(), getHeight());
+        pntr.flush();
+        setDropRatio(0);
+        clearStackImage();
+    }
+
+    /**
+     * Returns the ratio of row drops still to show for drop animation (1 at start, 0 when done).
+     */
+    public double getDropRatio()  { return _dropRatio; }
+
+    /**
+     * Sets the ratio of row drops still to show for drop animation.
+     */
+    public void setDropRatio(double aValue)
+    {
+        if (aValue == _dropRatio) return;
+        _dropRatio = aValue;
+        repaint();
+    }
+
+    /**
+     * Returns the stack image: the tiles image with shadow.
+     */
+    private Image getStackImage()
+    {
+        if (_stackImage != null) return _stackImage;
+
+        // Create view for tiles image with shadow and get image (includes shadow bounds)
+        ImageView imageView = new ImageView(_tilesImage);
+        imageView.setSize(getWidth(), getHeight());
+        imageView.setEffect(Block.BLOCK_EFFECT);
+        Image stackImage = ViewUtils.getImage(imageView);
+        _stackImageOffset = Math.max((stackImage.getWidth() - getWidth()) / 2, 0);
+        return _stackImage = stackImage;
+    }
+
+    /**
+     * Clears the stack image (to be recreated with shadow on next paint) and repaints.
+     */
+    private void clearStackImage()
+    {
+        _stackImage = null;
+        repaint();
+    }
+
+    /**
+     * Paint stack image (by row, offset by row drop, if drop animation is running).
+     */
+    protected void paintFront(Painter aPntr)
+    {
+        // Get stack image
+        Image stackImage = getStackImage();
+        double offset = _stackImageOffset;
+
+        // If no drop animation, just draw image
+        if (_dropRatio == 0) {
+            aPntr.drawImage(stackImage, -offset, -offset);
+            return;
+        }
+
+        // Iterate over rows and draw row strip of image, offset by row drop (first/last rows include shadow margin)
+        double imageW = stackImage.getWidth();
+        for (int row = 0; row < _rowCount; row++) {
+            double rowY = row * TILE_SIZE - _rowDrops[row] * _dropRatio * TILE_SIZE;
+            double srcY = row == 0 ? 0 : row * TILE_SIZE + offset;
+            double srcH = TILE_SIZE + (row == 0 ? offset : 0) + (row == _rowCount - 1 ? offset : 0);
+            double dstY = row == 0 ? rowY - offset : rowY;
+            aPntr.drawImage(stackImage, 0, srcY, imageW, srcH, -offset, dstY, imageW, srcH);
+        }
+    }
+
+    /**
+     * Override to support props for this class.
+     */
+    @Override
+    public Object getPropValue(String propName)
+    {
+        if (propName == DropRatio_Prop)
+            return getDropRatio();
+        return super.getPropValue(propName);
+    }
+
+    /**
+     * Override to support props for this class.
+     */
+    @Override
+    public void setPropValue(String propName, Object aValue)
+    {
+        if (propName == DropRatio_Prop)
+            setDropRatio(Convert.doubleValue(aValue));
+        else super.setPropValue(propName, aValue);
+    }
+}
@@ -0,0 +1,493 @@
+package snapdemos.tetris;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import snap.view.ViewTimer;
+
+/**
+ * A class to play Tetris automatically. It searches every rotation and column of the current piece and next piece
+ * (split across cores with fork/join), optionally with every possible piece after that, and picks the placement with
+ * the best BoardEvaluator score. Best piece scores are cached by board Zobrist hash in a transposition table shared
+ * by search threads, so boards reached by different placement orders are searched once. It can drive a PlayView
+ * (with the same moves as the user) or play a PlayModel headless.
+ */
+public class TetrisBot {
+
+    // The board evaluator
+    private BoardEvaluator _evaluator;
+
+    // Whether search is split across cores
+    private boolean _parallel = true;
+
+    // The number of pieces to search (current, next and unknown pieces after next)
+    private int _lookahead = 2;
+
+    // The transposition table to cache search values by board hash (and the weight for lines cleared)
+    private TranspositionTable _table;
+    private double _linesWeight;
+
+    // The PlayView to auto play
+    private PlayView _playView;
+
+    // The timer to step auto play
+    private ViewTimer _autoPlayTimer;
+
+    // The placement for current step piece and the remaining rotate count
+    private Placement _stepPlacement;
+    private int _stepRotateCount;
+
+    // The piece count and tick count when step placement was found (to detect new piece)
+    private int _stepPieceCount = -1;
+    private long _stepTickCount;
+
+    // Constants
+    private static final int AUTO_PLAY_PERIOD = 80;
+    private static final int PLACEMENTS_PER_TASK = 2;
+    private static final int TABLE_SIZE = 1 << 16;
+
+    // Constants for transposition table keys: best piece scores use board hash XOR pattern key XOR lookahead key
+    // (for number of pieces still to place)
+    private static final long[] LOOKAHEAD_KEYS = { 0, 0x2545F4914F6CDD1DL, 0x369DEA0F31A53F85L, 0x5851F42D4C957F2DL };
+    private static final long[] PATTERN_KEYS = { 0x9E3779B97F4A7C15L, 0xBF58476D1CE4E5B9L, 0x94D049BB133111EBL,
+            0xD6E8FEB86659FD93L, 0xA0761D6478BD642FL, 0xE7037ED1A0B428DBL, 0x8EBC6AF09C88C6E3L };
+
+    /**
+     * Constructor with default evaluator.
+     */
+    public TetrisBot()
+    {
+        this(new BoardEvaluator());
+    }
+
+    /**
+     * Constructor for given evaluator.
+     */
+    public TetrisBot(BoardEvaluator anEvaluator)
+    {
+        _evaluator = anEvaluator;
+        _linesWeight = anEvaluator.getWeight(BoardEvaluator.LINES);
+        _table = new TranspositionTable(TABLE_SIZE);
+    }
+
+    /**
+     * Returns the board evaluator.
+     */
+    public BoardEvaluator getEvaluator()  { return _evaluator; }
+
+    /**
+     * Sets the board evaluator (clears table, since cached scores depend on evaluator weights).
+     */
+    public void setEvaluator(BoardEvaluator anEvaluator)
+    {
+        _evaluator = anEvaluator;
+        _linesWeight = anEvaluator.getWeight(BoardEvaluator.LINES);
+        _table.clear();
+    }
+
+    /**
+     * Returns whether search is split across cores.
+     */
+    public boolean isParallel()  { return _parallel; }
+
+    /**
+     * Sets whether search is split across cores (turn off when running many games in parallel).
+     */
+    public void setParallel(boolean aValue)  { _parallel = aValue; }
+
+    /**
+     * Returns the number of pieces to search.
+     */
+    public int getLookahead()  { return _lookahead; }
+
+    /**
+     * Sets the number of pieces to search: 1 (current piece), 2 (current and next piece) or 3 (plus every possible
+     * piece after next, scored by average). Deeper lookahead relies on the transposition table to stay real time.
+     */
+    public void setLookahead(int aValue)
+    {
+        if (aValue < 1 || aValue >= LOOKAHEAD_KEYS.length)
+            throw new IllegalArgumentException("TetrisBot: Lookahead must be 1 to " + (LOOKAHEAD_KEYS.length - 1) + ": " + aValue);
+        _lookahead = aValue;
+    }
+
+    /**
+     * Returns the transposition table.
+     */
+    public TranspositionTable getTable()  { return _table; }
+
+    /**
+     * Returns the best placement for given board, piece pattern and row, and next pattern (or null if none).
+     */
+    public Placement findPlacement(Board aBoard, Pattern aPattern, int aRow, Pattern aNextPattern)
+    {
+        // Get placements for current pattern (just return if none)
+        List<Placement> placements = getPlacements(aBoard, aPattern, aRow);
+        if (placements.isEmpty())
+            return null;
+
+        // Search placements and return best
+        PlacementSearch search = new PlacementSearch(aBoard, aNextPattern, placements, 0, placements.size());
+        return _parallel ? ForkJoinPool.commonPool().invoke(search) : search.compute();
+    }
+
+    /**
+     * Returns the placements for every unique rotation and column of given pattern dropped from given row.
+     */
+    private List<Placement> getPlacements(Board aBoard, Pattern aPattern, int aRow)
+    {
+        List<Placement> placements = new ArrayList<>();
+        Pattern pattern = aPattern;
+
+        // Iterate over unique rotations and columns and add placement for each valid drop row
+        for (int rot = 0; rot < aPattern.getUniqueRotationCount(); rot++, pattern = pattern.getRotateRight()) {
+            for (int col = 0; col + pattern.colCount <= aBoard.getColCount(); col++) {
+                int dropRow = aBoard.getDropRow(pattern, col, Math.max(aRow, 0));
+                if (dropRow >= 0)
+                    placements.add(new Placement(pattern, rot, col, dropRow));
+            }
+        }
+
+        // Return
+        return placements;
+    }
+
+    /**
+     * Finds and plays the best placement for the current piece of given model headless: Rotates, moves and drops
+     * (which settles piece). Returns the placement (or null if none was found).
+     */
+    public Placement playPiece(PlayModel aModel)
+    {
+        // If game over, just return
+        if (aModel.isGameOver())
+            return null;
+
+        // Find placement and rotate and move to it
+        Placement placement = findPlacement(aModel.getBoard(), aModel.getPattern(), aModel.getRow(), aModel.getNextPattern());
+        if (placement != null) {
+            for (int i = 0; i < placement.rotateCount; i++)
+                aModel.rotateBlock();
+            while (aModel.getCol() > placement.col && aModel.moveLeft());
+            while (aModel.getCol() < placement.col && aModel.moveRight());
+        }
+
+        // Drop (settles piece) and return
+        aModel.dropBlock();
+        return placement;
+    }
+
+    /**
+     * Plays given model headless until game over or given number of settled pieces.
+     */
+    public void playGame(PlayModel aModel, int aMaxPieceCount)
+    {
+        while (!aModel.isGameOver() && aModel.getPieceCount() < aMaxPieceCount)
+            playPiece(aModel);
+    }
+
+    /**
+     * Plays one tick of given model headless, like a user: Does next move for current piece, then ticks model.
+     * Returns true if a piece was settled.
+     */
+    public boolean playTick(PlayModel aModel)
+    {
+        int pieceCount = aModel.getPieceCount();
+        doStep(aModel, null);
+        return aModel.tick() || aModel.getPieceCount() != pieceCount;
+    }
+
+    /**
+     * Returns the PlayView to auto play.
+     */
+    public PlayView getPlayView()  { return _playView; }
+
+    /**
+     * Sets the PlayView to auto play.
+     */
+    public void setPlayView(PlayView aPlayView)
+    {
+        setAutoPlay(false);
+        _playView = aPlayView;
+    }
+
+    /**
+     * Returns whether bot is auto playing PlayView.
+     */
+    public boolean isAutoPlay()  { return _autoPlayTimer != null && _autoPlayTimer.isRunning(); }
+
+    /**
+     * Sets whether bot is auto playing PlayView.
+     */
+    public void setAutoPlay(boolean aValue)
+    {
+        if (aValue == isAutoPlay()) return;
+
+        // Start timer
+        if (aValue) {
+            if (_autoPlayTimer == null)
+                _autoPlayTimer = new ViewTimer(this::autoPlayStep, AUTO_PLAY_PERIOD);
+            _stepPieceCount = -1;
+            _autoPlayTimer.start();
+        }
+
+        // Stop timer
+        else _autoPlayTimer.stop();
+    }
+
+    /**
+     * Called by auto play timer to do next PlayView move for current piece.
+     */
+    private void autoPlayStep()
+    {
+        doStep(_playView.getModel(), _playView);
+    }
+
+    /**
+     * Does next move for current piece of given model (through given PlayView, if not null): rotate, move left/right
+     * or drop. Finds placement when piece is new, then rotates first and drops when piece reaches placement column.
+     */
+    private void doStep(PlayModel aModel, PlayView aView)
+    {
+        // If game over, just return
+        if (aModel.isGameOver() || aModel.getPattern() == null)
+            return;
+
+        // If new piece (or new game), find placement (just drop if none found)
+        if (aModel.getPieceCount() != _stepPieceCount || aModel.getTickCount() < _stepTickCount) {
+            _stepPieceCount = aModel.getPieceCount();
+            _stepPlacement = findPlacement(aModel.getBoard(), aModel.getPattern(), aModel.getRow(), aModel.getNextPattern());
+            _stepRotateCount = _stepPlacement != null ? _stepPlacement.rotateCount : 0;
+            if (_stepPlacement == null) {
+                doAction(aModel, aView, Replay.DROP);
+                return;
+            }
+        }
+        _stepTickCount = aModel.getTickCount();
+
+        // If no placement (already dropped), just return
+        if (_stepPlacement == null)
+            return;
+
+        // If rotations remain, rotate and return
+        if (_stepRotateCount > 0) {
+            _stepRotateCount--;
+            doAction(aModel, aView, Replay.ROTATE);
+            return;
+        }
+
+        // Move left or right (or drop if move is blocked or piece is at placement column)
+        int col = aModel.getCol();
+        if (col > _stepPlacement.col)
+            doAction(aModel, aView, Replay.MOVE_LEFT);
+        else if (col < _stepPlacement.col)
+            doAction(aModel, aView, Replay.MOVE_RIGHT);
+        if (aModel.getCol() == col) {
+            _stepPlacement = null;
+            doAction(aModel, aView, Replay.DROP);
+        }
+    }
+
+    /**
+     * Performs given action on given model (through given PlayView, if not null).
+     */
+    private static void doAction(PlayModel aModel, PlayView aView, int anAction)
+    {
+        if (aView != null)
+            aView.doAction(anAction);
+        else aModel.doAction(anAction);
+    }
+
+    /**
+     * Returns the transposition table key for given pattern (any rotation).
+     */
+    private static long getPatternKey(Pattern aPattern)
+    {
+        Pattern basePattern = aPattern.getBasePattern();
+        for (int i = 0; i < Pattern.ALL_PATTERNS.length; i++)
+            if (Pattern.ALL_PATTERNS[i] == basePattern)
+                return PATTERN_KEYS[i];
+        throw new IllegalArgumentException("TetrisBot: Unknown pattern: " + aPattern);
+    }
+
+    /**
+     * A class to represent a piece placement: pattern rotation, column and drop row, with search score.
+     */
+    public static class Placement {
+
+        // The rotated pattern and the number of right rotations from original pattern
+        public final Pattern pattern;
+        public final int rotateCount;
+
+        // The column and drop row
+        public final int col, row;
+
+        // The score from search
+        public double score = -Double.MAX_VALUE;
+
+        /**
+         * Constructor.
+         */
+        public Placement(Pattern aPattern, int aRotateCount, int aCol, int aRow)
+        {
+            pattern = aPattern;
+            rotateCount = aRotateCount;
+            col = aCol;
+            row = aRow;
+        }
+
+        /**
+         * Standard toString implementation.
+         */
+        @Override
+        public String toString()
+        {
+            return "Placement { RotateCount=" + rotateCount + ", Col=" + col + ", Row=" + row + ", Score=" + score + " }";
+        }
+    }
+
+    /**
+     * A fork/join task to score a range of placements (with every placement of lookahead pieces) and return the best.
+     */
+    @SuppressWarnings("serial")
+    private class PlacementSearch extends RecursiveTask<Placement> {
+
+        // The board, next pattern and placements
+        private Board _board;
+        private Pattern _nextPattern;
+        private List<Placement> _placements;
+
+        // The range of placements to search
+        private int _start, _end;
+
+        // The scratch boards for each lookahead level, removed rows and column heights arrays (set in search)
+        private Board[] _boards;
+        private int[] _removedRows, _colHeights;
+
+        /**
+         * Constructor.
+         */
+        PlacementSearch(Board aBoard, Pattern aNextPattern, List<Placement> thePlacements, int aStart, int anEnd)
+        {
+            _board = aBoard;
+            _nextPattern = aNextPattern;
+            _placements = thePlacements;
+            _start = aStart;
+            _end = anEnd;
+        }
+
+        /**
+         * Splits range in half until small, then searches (ties go to first placement).
+         */
+        @Override
+        protected Placement compute()
+        {
+            // If range is small, just search
+            if (_end - _start <= PLACEMENTS_PER_TASK)
+                return searchPlacements();
+
+            // Split range and fork first half
+            int mid = (_start + _end) >>> 1;
+            PlacementSearch search1 = new PlacementSearch(_board, _nextPattern, _placements, _start, mid);
+            PlacementSearch search2 = new PlacementSearch(_board, _nextPattern, _placements, mid, _end);
+            search1.fork();
+            Placement placement2 = search2.compute();
+            Placement placement1 = search1.join();
+            return placement2.score > placement1.score ? placement2 : placement1;
+        }
+
+        /**
+         * Returns the score for given board with given number of pieces still to place (given pattern is the first,
+         * or null if unknown), not including lines cleared before board. Unknown pieces score the average over
+         * every pattern of its best placement score.
+         */
+        private double getScore(Board aBoard, Pattern aPattern, int aPieceCount, int aLevel)
+        {
+            // If no pieces to place, just return board score (not cached, since evaluation is cheaper than a table miss)
+            if (aPieceCount == 0)
+                return _evaluator.evaluate(aBoard, 0, _colHeights);
+
+            // If pattern known, return its best placement score
+            if (aPattern != null)
+                return getPieceScore(aBoard, aPattern, aPieceCount, aLevel);
+
+            // Return average best placement score of every pattern
+            double score = 0;
+            for (Pattern pattern : Pattern.ALL_PATTERNS)
+                score += getPieceScore(aBoard, pattern, aPieceCount, aLevel);
+            return score / Pattern.ALL_PATTERNS.length;
+        }
+
+        /**
+         * Returns the best score of every placement of given pattern on given board, with given number of pieces
+         * still to place (including this one) from table if cached, not including lines cleared before board.
+         */
+        private double getPieceScore(Board aBoard, Pattern aPattern, int aPieceCount, int aLevel)
+        {
+            // If cached, just return
+            long key = aBoard.getHash() ^ getPatternKey(aPattern) ^ LOOKAHEAD_KEYS[aPieceCount];
+            double pieceScore = _table.get(key);
+            if (!Double.isNaN(pieceScore))
+                return pieceScore;
+
+            // Iterate over pattern unique rotations and columns and get best score
+            pieceScore = -Double.MAX_VALUE;
+            Board scratchBoard = _boards[aLevel];
+            int colCount = aBoard.getColCount();
+            Pattern pattern = aPattern;
+            for (int rot = 0; rot < pattern.getUniqueRotationCount(); rot++, pattern = pattern.getRotateRight()) {
+                for (int col = 0; col + pattern.colCount <= colCount; col++) {
+                    int dropRow = aBoard.getDropRow(pattern, col, 0);
+                    if (dropRow < 0)
+                        continue;
+                    scratchBoard.copyFrom(aBoard);
+                    scratchBoard.addPattern(pattern, col, dropRow);
+                    int lineCount = scratchBoard.removeFullRows(_removedRows);
+                    double score = getScore(scratchBoard, null, aPieceCount - 1, aLevel + 1) + _linesWeight * lineCount;
+                    pieceScore = Math.max(pieceScore, score);
+                }
+            }
+
+            // Add to table and return
+            _table.put(key, pieceScore);
+            return pieceScore;
+        }
+
+        /**
+         * Scores each placement in range and returns the best.
+         */
+        private Placement searchPlacements()
+        {
+            // Create scratch boards (one per lookahead level), removed rows and column heights arrays
+            int colCount = _board.getColCount();
+            int rowCount = _board.getRowCount();
+            _boards = new Board[_lookahead];
+            for (int i = 0; i < _lookahead; i++)
+                _boards[i] = new Board(colCount, rowCount, false);
+            _removedRows = new int[rowCount];
+            _colHeights = new int[colCount];
+            Placement bestPlacement = null;
+
+            // Iterate over placements
+            for (int i = _start; i < _end; i++) {
+
+                // Add placement to board and remove full rows
+                Placement placement = _placements.get(i);
+                Board board1 = _boards[0];
+                board1.copyFrom(_board);
+                board1.addPattern(placement.pattern, placement.col, placement.row);
+                int lineCount1 = board1.removeFullRows(_removedRows);
+
+                // Get score: Lines score plus score of remaining lookahead pieces (starting with next pattern)
+                double score = getScore(board1, _nextPattern, _lookahead - 1, 1);
+                placement.score = score + _linesWeight * lineCount1;
+
+                // If best so far, swap in
+                if (bestPlacement == null || placement.score > bestPlacement.score)
+                    bestPlacement = placement;
+            }
+
+            // Return
+            return bestPlacement;
+        }
+    }
+}
@@ -13,6 +13,9 @@ public class TetrisPane extends ViewController {
     // The next block box
     private BoxView _nextBlockBox;
 
+    // The bot to auto play
+    private TetrisBot _bot;
+
     /**
      * Constructor.
      */
@@ -68,9 +71,23 @@ public class TetrisPane extends ViewController {
         if(anEvent.equals("DropButton")) _playView.dropBlock();
         if(anEvent.equals("RotateButton")) _playView.rotateBlock();
 
-        // Handle PauseButton, RestartButton
+        // Handle PauseButton, RestartButton, AutoPlayButton
         if(anEvent.equals("PauseButton")) _playView.pauseGame();
         if(anEvent.equals("RestartButton")) _playView.startGame();
+        if(anEvent.equals("AutoPlayButton")) toggleAutoPlay();
+    }
+
+    /**
+     * Toggles whether bot is auto playing.
+     */
+    private void toggleAutoPlay()
+    {
+        if (_bot == null) {
+            _bot = new TetrisBot();
+            _bot.setPlayView(_playView);
+        }
+        _bot.setAutoPlay(!_bot.isAutoPlay());
+        _playView.requestFocus();
     }
 
     /**
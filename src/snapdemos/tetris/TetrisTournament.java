@@ -0,0 +1,326 @@
+package snapdemos.tetris;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A class to run many independent headless Tetris games (each with its own seed and bot) across every core and
+ * aggregate the results (score, lines, pieces, ticks and ns per tick) into a CSV or JSON report.
+ * Games are stepped tick by tick with no window or ViewEnv timer.
+ */
+public class TetrisTournament {
+
+    // The number of games
+    private int _gameCount = 1000;
+
+    // The number of threads
+    private int _threadCount = Runtime.getRuntime().availableProcessors();
+
+    // The maximum number of pieces per game
+    private int _maxPieceCount = 2000;
+
+    // The seed for first game (each game uses next seed)
+    private long _seed = 1;
+
+    // The number of pieces bot searches
+    private int _lookahead = 2;
+
+    // The weights for bot evaluator
+    private double[] _weights = BoardEvaluator.getTrainedWeights();
+
+    // The results for each game
+    private GameResult[] _results;
+
+    // The time to run all games in nanoseconds
+    private long _runTime;
+
+    // The bot for each worker thread (reused across games to keep its transposition table)
+    private ThreadLocal<TetrisBot> _bots = ThreadLocal.withInitial(() -> {
+        TetrisBot bot = new TetrisBot();
+        bot.setParallel(false);
+        return bot;
+    });
+
+    // Constants for board size
+    private static final int COL_COUNT = 10;
+    private static final int ROW_COUNT = 20;
+
+    /**
+     * Constructor.
+     */
+    public TetrisTournament()
+    {
+        super();
+    }
+
+    /**
+     * Returns the number of games.
+     */
+    public int getGameCount()  { return _gameCount; }
+
+    /**
+     * Sets the number of games.
+     */
+    public void setGameCount(int aValue)  { _gameCount = aValue; }
+
+    /**
+     * Returns the number of threads.
+     */
+    public int getThreadCount()  { return _threadCount; }
+
+    /**
+     * Sets the number of threads.
+     */
+    public void setThreadCount(int aValue)  { _threadCount = aValue; }
+
+    /**
+     * Returns the maximum number of pieces per game.
+     */
+    public int getMaxPieceCount()  { return _maxPieceCount; }
+
+    /**
+     * Sets the maximum number of pieces per game.
+     */
+    public void setMaxPieceCount(int aValue)  { _maxPieceCount = aValue; }
+
+    /**
+     * Returns the seed for first game.
+     */
+    public long getSeed()  { return _seed; }
+
+    /**
+     * Sets the seed for first game.
+     */
+    public void setSeed(long aValue)  { _seed = aValue; }
+
+    /**
+     * Returns the number of pieces bot searches.
+     */
+    public int getLookahead()  { return _lookahead; }
+
+    /**
+     * Sets the number of pieces bot searches (see TetrisBot.setLookahead).
+     */
+    public void setLookahead(int aValue)  { _lookahead = aValue; }
+
+    /**
+     * Returns the weights for bot evaluator.
+     */
+    public double[] getWeights()  { return _weights.clone(); }
+
+    /**
+     * Sets the weights for bot evaluator.
+     */
+    public void setWeights(double[] theWeights)  { _weights = theWeights.clone(); }
+
+    /**
+     * Returns the results for each game (after run).
+     */
+    public GameResult[] getResults()  { return _results; }
+
+    /**
+     * Runs all games on a fixed thread pool and returns results.
+     */
+    public GameResult[] run()
+    {
+        // Create thread pool and submit games
+        long startTime = System.nanoTime();
+        ExecutorService executor = Executors.newFixedThreadPool(_threadCount);
+        List<Future<GameResult>> futures = new ArrayList<>(_gameCount);
+        for (int i = 0; i < _gameCount; i++) {
+            long seed = _seed + i;
+            futures.add(executor.submit(() -> playGame(seed)));
+        }
+
+        // Get results
+        _results = new GameResult[_gameCount];
+        try {
+            for (int i = 0; i < _gameCount; i++)
+                _results[i] = futures.get(i).get();
+        }
+        catch (Exception e) { throw new RuntimeException(e); }
+        finally { executor.shutdownNow(); }
+
+        // Set run time and return
+        _runTime = System.nanoTime() - startTime;
+        return _results;
+    }
+
+    /**
+     * Plays a single game for given seed and returns result.
+     */
+    private GameResult playGame(long aSeed)
+    {
+        // Create model and get thread bot (search isn't split, since games already fill every core)
+        PlayModel model = new PlayModel(COL_COUNT, ROW_COUNT);
+        model.setRecording(false);
+        TetrisBot bot = _bots.get();
+        bot.setEvaluator(new BoardEvaluator(_weights));
+        bot.setLookahead(_lookahead);
+
+        // Play game tick by tick until game over or max pieces
+        long startTime = System.nanoTime();
+        model.startGame(aSeed);
+        while (!model.isGameOver() && model.getPieceCount() < _maxPieceCount)
+            bot.playTick(model);
+        long time = System.nanoTime() - startTime;
+
+        // Return result
+        return new GameResult(aSeed, model, time);
+    }
+
+    /**
+     * Returns the results as CSV (with header row).
+     */
+    public String getCSV()
+    {
+        StringBuilder sb = new StringBuilder("seed,score,lines,pieces,ticks,gameOver,timeNanos,nanosPerTick\n");
+        for (GameResult result : _results) {
+            sb.append(result.seed).append(',').append(result.score).append(',').append(result.lineCount).append(',');
+            sb.append(result.pieceCount).append(',').append(result.tickCount).append(',').append(result.gameOver).append(',');
+            sb.append(result.timeNanos).append(',');
+            sb.append(String.format(Locale.ROOT, "%.1f", result.getNanosPerTick())).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the results as JSON: an object with the settings, summary and array of game results.
+     */
+    public String getJSON()
+    {
+        StringBuilder sb = new StringBuilder("{\n");
+        sb.append("  \"gameCount\": ").append(_gameCount).append(",\n");
+        sb.append("  \"threadCount\": ").append(_threadCount).append(",\n");
+        sb.append("  \"maxPieceCount\": ").append(_maxPieceCount).append(",\n");
+        sb.append("  \"lookahead\": ").append(_lookahead).append(",\n");
+        sb.append("  \"weights\": ").append(Arrays.toString(_weights)).append(",\n");
+        sb.append("  \"runTimeMillis\": ").append(_runTime / 1000000).append(",\n");
+        sb.append("  \"meanScore\": ").append(String.format(Locale.ROOT, "%.1f", getMeanScore())).append(",\n");
+        sb.append("  \"meanLines\": ").append(String.format(Locale.ROOT, "%.1f", getMeanLineCount())).append(",\n");
+        sb.append("  \"games\": [\n");
+        for (int i = 0; i < _results.length; i++) {
+            GameResult result = _results[i];
+            sb.append("    { \"seed\": ").append(result.seed).append(", \"score\": ").append(result.score);
+            sb.append(", \"lines\": ").append(result.lineCount).append(", \"pieces\": ").append(result.pieceCount);
+            sb.append(", \"ticks\": ").append(result.tickCount).append(", \"gameOver\": ").append(result.gameOver);
+            sb.append(", \"timeNanos\": ").append(result.timeNanos);
+            sb.append(", \"nanosPerTick\": ").append(String.format(Locale.ROOT, "%.1f", result.getNanosPerTick())).append(" }");
+            sb.append(i + 1 < _results.length ? ",\n" : "\n");
+        }
+        sb.append("  ]\n}\n");
+        return sb.toString();
+    }
+
+    /**
+     * Writes results to given file path (as JSON if path ends with .json, otherwise CSV).
+     */
+    public void writeReport(Path aPath) throws IOException
+    {
+        String report = aPath.toString().endsWith(".json") ? getJSON() : getCSV();
+        Files.writeString(aPath, report);
+    }
+
+    /**
+     * Returns the mean score.
+     */
+    public double getMeanScore()
+    {
+        return Arrays.stream(_results).mapToInt(result -> result.score).average().orElse(0);
+    }
+
+    /**
+     * Returns the mean number of lines.
+     */
+    public double getMeanLineCount()
+    {
+        return Arrays.stream(_results).mapToInt(result -> result.lineCount).average().orElse(0);
+    }
+
+    /**
+     * Returns a summary of results.
+     */
+    public String getSummary()
+    {
+        long tickCount = Arrays.stream(_results).mapToLong(result -> result.tickCount).sum();
+        long pieceCount = Arrays.stream(_results).mapToLong(result -> result.pieceCount).sum();
+        long gameOverCount = Arrays.stream(_results).filter(result -> result.gameOver).count();
+        double seconds = _runTime / 1e9;
+        return String.format("Games: %d, Threads: %d, Time: %.1fs, Mean Score: %.1f, Mean Lines: %.1f, Game Overs: %d, " +
+                "Ticks/sec: %.0f, Pieces/sec: %.0f", _gameCount, _threadCount, seconds, getMeanScore(),
+                getMeanLineCount(), gameOverCount, tickCount / seconds, pieceCount / seconds);
+    }
+
+    /**
+     * A class to hold the result of a game.
+     */
+    public static class GameResult {
+
+        // The game seed
+        public final long seed;
+
+        // The score, lines and pieces
+        public final int score, lineCount, pieceCount;
+
+        // The number of ticks and whether game ended
+        public final long tickCount;
+        public final boolean gameOver;
+
+        // The time to play game in nanoseconds
+        public final long timeNanos;
+
+        /**
+         * Constructor for given seed, finished model and time.
+         */
+        public GameResult(long aSeed, PlayModel aModel, long aTime)
+        {
+            seed = aSeed;
+            score = aModel.getScore();
+            lineCount = aModel.getLineCount();
+            pieceCount = aModel.getPieceCount();
+            tickCount = aModel.getTickCount();
+            gameOver = aModel.isGameOver();
+            timeNanos = aTime;
+        }
+
+        /**
+         * Returns the average time per tick in nanoseconds.
+         */
+        public double getNanosPerTick()  { return tickCount > 0 ? timeNanos / (double) tickCount : 0; }
+    }
+
+    /**
+     * Runs a tournament. Options: -games N, -threads N, -pieces N, -seed N, -lookahead N, -out report.csv|report.json
+     */
+    public static void main(String[] args) throws IOException
+    {
+        // Parse options
+        TetrisTournament tournament = new TetrisTournament();
+        Path outPath = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-games" -> tournament.setGameCount(Integer.parseInt(value));
+                case "-threads" -> tournament.setThreadCount(Integer.parseInt(value));
+                case "-pieces" -> tournament.setMaxPieceCount(Integer.parseInt(value));
+                case "-seed" -> tournament.setSeed(Long.parseLong(value));
+                case "-lookahead" -> tournament.setLookahead(Integer.parseInt(value));
+                case "-out" -> outPath = Path.of(value);
+                default -> throw new IllegalArgumentException("TetrisTournament: Unknown option: " + args[i]);
+            }
+        }
+
+        // Run, print summary and write report
+        tournament.run();
+        System.out.println(tournament.getSummary());
+        if (outPath != null)
+            tournament.writeReport(outPath);
+    }
+}
@@ -0,0 +1,405 @@
+package snapdemos.tetris;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * A class to evolve BoardEvaluator weights with a genetic algorithm. Each generation, every candidate plays the same
+ * set of seeded headless games (in parallel across cores) and is scored by mean lines cleared. The weakest candidates
+ * are replaced by mutated, fitness-weighted crossovers of tournament-selected parents. The population is checkpointed
+ * to disk each generation (so training can resume) and the best weights are written to the bot weights file.
+ */
+public class TetrisTrainer {
+
+    // The number of candidates in population
+    private int _populationSize = 100;
+
+    // The number of games each candidate plays per generation
+    private int _gameCount = 200;
+
+    // The maximum number of pieces per game
+    private int _maxPieceCount = 500;
+
+    // The number of generations
+    private int _generationCount = 20;
+
+    // The number of threads
+    private int _threadCount = Runtime.getRuntime().availableProcessors();
+
+    // The path of checkpoint file and weights file
+    private Path _checkpointPath = Path.of("TetrisTrainer.checkpoint");
+    private Path _weightsPath = Path.of("src/snapdemos/tetris/" + BoardEvaluator.WEIGHTS_RESOURCE);
+
+    // The random for evolution (and game seeds)
+    private Random _random = new Random(1);
+
+    // The current generation
+    private int _generation;
+
+    // The population
+    private List<Candidate> _population = new ArrayList<>();
+
+    // The bot for each worker thread (reused across games to keep its transposition table)
+    private ThreadLocal<TetrisBot> _bots = ThreadLocal.withInitial(() -> {
+        TetrisBot bot = new TetrisBot();
+        bot.setParallel(false);
+        return bot;
+    });
+
+    // Constants for evolution
+    private static final double TOURNAMENT_RATIO = .1;
+    private static final double REPLACE_RATIO = .3;
+    private static final double MUTATION_CHANCE = .05;
+    private static final double MUTATION_AMOUNT = .2;
+
+    // Constants for board size
+    private static final int COL_COUNT = 10;
+    private static final int ROW_COUNT = 20;
+
+    /**
+     * Constructor.
+     */
+    public TetrisTrainer()
+    {
+        super();
+    }
+
+    /**
+     * Returns the number of candidates in population.
+     */
+    public int getPopulationSize()  { return _populationSize; }
+
+    /**
+     * Sets the number of candidates in population.
+     */
+    public void setPopulationSize(int aValue)  { _populationSize = aValue; }
+
+    /**
+     * Returns the number of games each candidate plays per generation.
+     */
+    public int getGameCount()  { return _gameCount; }
+
+    /**
+     * Sets the number of games each candidate plays per generation.
+     */
+    public void setGameCount(int aValue)  { _gameCount = aValue; }
+
+    /**
+     * Returns the maximum number of pieces per game.
+     */
+    public int getMaxPieceCount()  { return _maxPieceCount; }
+
+    /**
+     * Sets the maximum number of pieces per game.
+     */
+    public void setMaxPieceCount(int aValue)  { _maxPieceCount = aValue; }
+
+    /**
+     * Returns the number of generations.
+     */
+    public int getGenerationCount()  { return _generationCount; }
+
+    /**
+     * Sets the number of generations.
+     */
+    public void setGenerationCount(int aValue)  { _generationCount = aValue; }
+
+    /**
+     * Returns the number of threads.
+     */
+    public int getThreadCount()  { return _threadCount; }
+
+    /**
+     * Sets the number of threads.
+     */
+    public void setThreadCount(int aValue)  { _threadCount = aValue; }
+
+    /**
+     * Returns the path of checkpoint file.
+     */
+    public Path getCheckpointPath()  { return _checkpointPath; }
+
+    /**
+     * Sets the path of checkpoint file.
+     */
+    public void setCheckpointPath(Path aPath)  { _checkpointPath = aPath; }
+
+    /**
+     * Returns the path of weights file.
+     */
+    public Path getWeightsPath()  { return _weightsPath; }
+
+    /**
+     * Sets the path of weights file.
+     */
+    public void setWeightsPath(Path aPath)  { _weightsPath = aPath; }
+
+    /**
+     * Returns the current generation.
+     */
+    public int getGeneration()  { return _generation; }
+
+    /**
+     * Returns the population.
+     */
+    public List<Candidate> getPopulation()  { return _population; }
+
+    /**
+     * Trains: Resumes from checkpoint (or creates random population), then evolves for remaining generations.
+     */
+    public void train() throws IOException
+    {
+        // Read checkpoint (or create random population)
+        if (Files.exists(_checkpointPath))
+            readCheckpoint();
+        else createPopulation();
+
+        // Create thread pool and run generations
+        ExecutorService executor = Executors.newFixedThreadPool(_threadCount);
+        try {
+            while (_generation < _generationCount)
+                runGeneration(executor);
+        }
+        finally { executor.shutdownNow(); }
+    }
+
+    /**
+     * Runs a generation: Evaluates population, writes best weights, evolves and writes checkpoint.
+     */
+    private void runGeneration(ExecutorService anExecutor) throws IOException
+    {
+        // Evaluate population and sort by fitness
+        long startTime = System.nanoTime();
+        evaluatePopulation(anExecutor);
+        _population.sort(Comparator.comparingDouble((Candidate cand) -> cand.fitness).reversed());
+
+        // Write best weights
+        Candidate best = _population.get(0);
+        Files.writeString(_weightsPath, "# Weights for TetrisBot BoardEvaluator features (written by TetrisTrainer)\n" +
+                new BoardEvaluator(best.weights).getWeightsText());
+
+        // Print generation summary
+        double meanFitness = _population.stream().mapToDouble(cand -> cand.fitness).average().orElse(0);
+        double seconds = (System.nanoTime() - startTime) / 1e9;
+        System.out.printf("Generation %d: Best Lines: %.1f, Mean Lines: %.1f, Time: %.1fs, Best: %s%n",
+                _generation, best.fitness, meanFitness, seconds, Arrays.toString(best.weights));
+
+        // Evolve and write checkpoint
+        evolvePopulation();
+        _generation++;
+        writeCheckpoint();
+    }
+
+    /**
+     * Creates random population of normalized weights.
+     */
+    private void createPopulation()
+    {
+        _population.clear();
+        _generation = 0;
+        for (int i = 0; i < _populationSize; i++) {
+            double[] weights = new double[BoardEvaluator.FEATURE_COUNT];
+            for (int j = 0; j < weights.length; j++)
+                weights[j] = _random.nextDouble() * 2 - 1;
+            _population.add(new Candidate(normalize(weights)));
+        }
+    }
+
+    /**
+     * Evaluates each candidate on the same set of seeded games (new seeds each generation), in parallel.
+     */
+    private void evaluatePopulation(ExecutorService anExecutor)
+    {
+        // Get seeds for generation (same for every candidate)
+        Random seedRandom = new Random(_generation * 31L + 17);
+        long[] seeds = new long[_gameCount];
+        for (int i = 0; i < _gameCount; i++)
+            seeds[i] = seedRandom.nextLong();
+
+        // Submit a task to play each game for each candidate
+        List<Future<Integer>> futures = new ArrayList<>(_population.size() * _gameCount);
+        for (Candidate cand : _population) {
+            for (long seed : seeds)
+                futures.add(anExecutor.submit(() -> playGame(cand.weights, seed)));
+        }
+
+        // Set fitness for each candidate to mean lines
+        try {
+            int futureIndex = 0;
+            for (Candidate cand : _population) {
+                long lineCount = 0;
+                for (int i = 0; i < _gameCount; i++)
+                    lineCount += futures.get(futureIndex++).get();
+                cand.fitness = lineCount / (double) _gameCount;
+            }
+        }
+        catch (Exception e) { throw new RuntimeException(e); }
+    }
+
+    /**
+     * Plays a headless game (piece by piece, for speed) with given weights and seed and returns lines cleared.
+     */
+    private int playGame(double[] theWeights, long aSeed)
+    {
+        PlayModel model = new PlayModel(COL_COUNT, ROW_COUNT);
+        model.setRecording(false);
+        model.startGame(aSeed);
+        TetrisBot bot = _bots.get();
+        bot.setEvaluator(new BoardEvaluator(theWeights));
+        bot.playGame(model, _maxPieceCount);
+        return model.getLineCount();
+    }
+
+    /**
+     * Replaces the weakest candidates (population must be sorted by fitness) with offspring of tournament winners.
+     */
+    private void evolvePopulation()
+    {
+        // Create offspring
+        int offspringCount = (int) Math.round(_population.size() * REPLACE_RATIO);
+        List<Candidate> offspring = new ArrayList<>(offspringCount);
+        for (int i = 0; i < offspringCount; i++) {
+
+            // Select two best of random subset as parents
+            int tournamentSize = Math.max((int) (_population.size() * TOURNAMENT_RATIO), 2);
+            List<Candidate> tournament = new ArrayList<>(tournamentSize);
+            for (int j = 0; j < tournamentSize; j++)
+                tournament.add(_population.get(_random.nextInt(_population.size())));
+            tournament.sort(Comparator.comparingDouble((Candidate cand) -> cand.fitness).reversed());
+            Candidate parent1 = tournament.get(0);
+            Candidate parent2 = tournament.get(1);
+
+            // Create child from crossover and mutation
+            double[] childWeights = crossover(parent1, parent2);
+            if (_random.nextDouble() < MUTATION_CHANCE)
+                childWeights[_random.nextInt(childWeights.length)] += (_random.nextDouble() * 2 - 1) * MUTATION_AMOUNT;
+            offspring.add(new Candidate(normalize(childWeights)));
+        }
+
+        // Replace weakest candidates with offspring
+        int keepCount = _population.size() - offspringCount;
+        _population.subList(keepCount, _population.size()).clear();
+        _population.addAll(offspring);
+    }
+
+    /**
+     * Returns the crossover of given parents: the average of weights, weighted by parent fitness.
+     */
+    private static double[] crossover(Candidate aParent1, Candidate aParent2)
+    {
+        double fitness1 = aParent1.fitness, fitness2 = aParent2.fitness;
+        double ratio1 = fitness1 + fitness2 > 0 ? fitness1 / (fitness1 + fitness2) : .5;
+        double[] weights = new double[aParent1.weights.length];
+        for (int i = 0; i < weights.length; i++)
+            weights[i] = aParent1.weights[i] * ratio1 + aParent2.weights[i] * (1 - ratio1);
+        return weights;
+    }
+
+    /**
+     * Normalizes given weights to unit length (since only relative weights matter) and returns them.
+     */
+    private static double[] normalize(double[] theWeights)
+    {
+        double length = Math.sqrt(Arrays.stream(theWeights).map(weight -> weight * weight).sum());
+        if (length > 0) {
+            for (int i = 0; i < theWeights.length; i++)
+                theWeights[i] /= length;
+        }
+        return theWeights;
+    }
+
+    /**
+     * Writes checkpoint: generation and random state, followed by weights for each candidate (one per line).
+     */
+    private void writeCheckpoint() throws IOException
+    {
+        // Get checkpoint text (reseed random, so resumed run continues same as uninterrupted run)
+        long randomSeed = _random.nextLong();
+        _random.setSeed(randomSeed);
+        StringBuilder sb = new StringBuilder();
+        sb.append("generation ").append(_generation).append('\n');
+        sb.append("random ").append(randomSeed).append('\n');
+        for (Candidate cand : _population) {
+            for (int i = 0; i < cand.weights.length; i++)
+                sb.append(i > 0 ? " " : "").append(cand.weights[i]);
+            sb.append('\n');
+        }
+
+        // Write to temp file and move, so an interrupted write doesn't lose last checkpoint
+        Path tempPath = _checkpointPath.resolveSibling(_checkpointPath.getFileName() + ".tmp");
+        Files.writeString(tempPath, sb);
+        Files.move(tempPath, _checkpointPath, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * Reads checkpoint.
+     */
+    private void readCheckpoint() throws IOException
+    {
+        // Read generation and random state
+        List<String> lines = Files.readAllLines(_checkpointPath);
+        _generation = Integer.parseInt(lines.get(0).substring("generation ".length()).trim());
+        _random.setSeed(Long.parseLong(lines.get(1).substring("random ".length()).trim()));
+
+        // Read population
+        _population.clear();
+        for (String line : lines.subList(2, lines.size())) {
+            if (line.isBlank())
+                continue;
+            double[] weights = Arrays.stream(line.trim().split(" ")).mapToDouble(Double::parseDouble).toArray();
+            _population.add(new Candidate(weights));
+        }
+        System.out.println("Resumed from checkpoint at generation " + _generation);
+    }
+
+    /**
+     * A class to hold a candidate: weights and fitness.
+     */
+    public static class Candidate {
+
+        // The weights
+        public final double[] weights;
+
+        // The fitness (mean lines cleared)
+        public double fitness;
+
+        /**
+         * Constructor.
+         */
+        public Candidate(double[] theWeights)
+        {
+            weights = theWeights;
+        }
+    }
+
+    /**
+     * Runs trainer. Options: -population N, -games N, -pieces N, -generations N, -threads N, -checkpoint file,
+     * -weights file
+     */
+    public static void main(String[] args) throws IOException
+    {
+        // Parse options
+        TetrisTrainer trainer = new TetrisTrainer();
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-population" -> trainer.setPopulationSize(Integer.parseInt(value));
+                case "-games" -> trainer.setGameCount(Integer.parseInt(value));
+                case "-pieces" -> trainer.setMaxPieceCount(Integer.parseInt(value));
+                case "-generations" -> trainer.setGenerationCount(Integer.parseInt(value));
+                case "-threads" -> trainer.setThreadCount(Integer.parseInt(value));
+                case "-checkpoint" -> trainer.setCheckpointPath(Path.of(value));
+                case "-weights" -> trainer.setWeightsPath(Path.of(value));
+                default -> throw new IllegalArgumentException("TetrisTrainer: Unknown option: " + args[i]);
+            }
+        }
+
+        // Train
+        trainer.train();
+    }
+}
@@ -0,0 +1,73 @@
+package snapdemos.tetris;
+import java.util.Arrays;
+
+/**
+ * A bounded, lock-free hash table to cache search values for board hash keys (shared by search threads).
+ * Each slot holds the value bits and the key XOR value bits, so a slot torn by concurrent writes just fails the key
+ * check and reads as a miss. New entries always replace old entries in the same slot.
+ */
+public class TranspositionTable {
+
+    // The check bits (key XOR value bits) and value bits for each slot
+    private long[] _checks, _values;
+
+    // The mask to get slot index from key
+    private int _mask;
+
+    /**
+     * Constructor for given number of slots (rounded up to power of two).
+     */
+    public TranspositionTable(int aSize)
+    {
+        int size = Integer.highestOneBit(Math.max(aSize - 1, 1)) << 1;
+        _checks = new long[size];
+        _values = new long[size];
+        _mask = size - 1;
+        clear();
+    }
+
+    /**
+     * Returns the number of slots.
+     */
+    public int getSize()  { return _values.length; }
+
+    /**
+     * Returns the value for given key (or NaN if not found).
+     */
+    public double get(long aKey)
+    {
+        int index = getIndex(aKey);
+        long valueBits = _values[index];
+        long checkBits = _checks[index];
+        return (checkBits ^ valueBits) == aKey ? Double.longBitsToDouble(valueBits) : Double.NaN;
+    }
+
+    /**
+     * Sets the value for given key.
+     */
+    public void put(long aKey, double aValue)
+    {
+        int index = getIndex(aKey);
+        long valueBits = Double.doubleToRawLongBits(aValue);
+        _values[index] = valueBits;
+        _checks[index] = aKey ^ valueBits;
+    }
+
+    /**
+     * Clears the table.
+     */
+    public void clear()
+    {
+        // Fill with NaN values, so empty slots read as misses even if check matches
+        Arrays.fill(_values, Double.doubleToRawLongBits(Double.NaN));
+        Arrays.fill(_checks, 0);
+    }
+
+    /**
+     * Returns the slot index for given key (mixing high bits into low bits).
+     */
+    private int getIndex(long aKey)
+    {
+        return (int) (aKey ^ (aKey >>> 32)) & _mask;
+    }
+}